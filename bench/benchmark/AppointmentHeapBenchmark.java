@@ -0,0 +1,92 @@
+package benchmark;
+
+import appointment.Appointment;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * The AppointmentHeapBenchmark class measures the heap retained by a million appointments held
+ * the way {@code AppointmentRepository} used to hold them, as the {@code String[]} produced by
+ * splitting each Appointment.csv line, compared with compact {@link Appointment} objects whose
+ * doctor and patient IDs are shared as the repository shares them. Both layouts are keyed by
+ * appointment ID in a {@link LinkedHashMap}, and the retained heap is the used heap after a full
+ * collection with the map populated, less the used heap before it was built.
+ *
+ * <p>Usage: {@code java benchmark.AppointmentHeapBenchmark [rows]} (default: 1000000 rows), with the
+ * classes of both {@code src} and {@code bench} on the class path.
+ * Run with a fixed heap such as {@code -Xms2g -Xmx2g} for stable figures.</p>
+ */
+public class AppointmentHeapBenchmark {
+    private static final String[] STATUSES = {"PENDING", "CONFIRMED", "COMPLETED", "CANCELLED"};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional row count
+     */
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("Retained heap for %,d appointments%n", rows);
+
+        long rowBytes = measure(rows, count -> {
+            Map<String, String[]> appointments = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String[] fields = line(i).split(",");
+                appointments.put(fields[0], fields);
+            }
+            return appointments;
+        });
+
+        long compactBytes = measure(rows, count -> {
+            Map<String, String> canonicalIDs = new HashMap<>();
+            Map<String, Appointment> appointments = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String[] fields = line(i).split(",");
+                fields[1] = canonicalIDs.computeIfAbsent(fields[1], id -> id);
+                fields[2] = canonicalIDs.computeIfAbsent(fields[2], id -> id);
+                appointments.put(fields[0], Appointment.fromFields(fields));
+            }
+            return List.of(canonicalIDs, appointments);
+        });
+
+        report("String[] rows", rowBytes, rows);
+        report("Appointment", compactBytes, rows);
+        System.out.printf("Saved %,d bytes (%.0f%%)%n", rowBytes - compactBytes, 100.0 * (rowBytes - compactBytes) / rowBytes);
+    }
+
+    /**
+     * Builds an Appointment.csv line for appointment number {@code i}, spread over 50 doctors,
+     * 5000 patients, a year of dates and a working day of half-hour slots.
+     */
+    private static String line(int i) {
+        int hour = 9 + (i % 16) / 2;
+        String start = String.format("%02d:%s", hour, i % 2 == 0 ? "00" : "30");
+        String end = i % 2 == 0 ? String.format("%02d:30", hour) : String.format("%02d:00", hour + 1);
+        return "AP" + (100000 + i) + ",D" + String.format("%03d", i % 50) + ",P" + (1000 + i % 5000)
+                + "," + String.format("%02d-%02d-26", 1 + i % 28, 1 + i % 12) + "," + start + "-" + end
+                + "," + STATUSES[i % STATUSES.length];
+    }
+
+    private static long measure(int rows, IntFunction<Object> build) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedAfterGc(memory);
+        Object retained = build.apply(rows);
+        long after = usedAfterGc(memory);
+        Reference.reachabilityFence(retained);
+        return after - before;
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void report(String name, long bytes, int rows) {
+        System.out.printf("%-14s %,14d bytes %8.1f bytes/appointment%n", name, bytes, (double) bytes / rows);
+    }
+}
@@ -0,0 +1,111 @@
+package benchmark;
+
+import storage.StripedLocks;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The BookingContentionBenchmark class measures booking throughput on an in-memory slot calendar
+ * when every booking takes one global lock, compared with locks striped by doctor as used by
+ * {@code AppointmentService}. Each booking checks a doctor-day for a free half-hour slot, books
+ * the first one and builds the appointment row, all under the lock; a full day is reopened so
+ * the run can continue. The run is repeated for 1, 2, 4, ... threads up to the maximum thread count.
+ *
+ * <p>Usage: {@code java benchmark.BookingContentionBenchmark [doctors] [millisPerRun] [maxThreads]}
+ * (defaults: 256 doctors, 1000 ms, the number of cores), with the classes of both {@code src} and
+ * {@code bench} on the class path.</p>
+ */
+public class BookingContentionBenchmark {
+    private static final int DAYS = 28;
+    private static final long WORKING_DAY = 0xFFFFL << 18; // 09:00-17:00 as slot bits 18-33
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional doctor count, run length in milliseconds and maximum thread count
+     * @throws InterruptedException if interrupted while waiting for the worker threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int doctors = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : cores;
+        System.out.printf("%d doctors x %d days, %d ms per run, %d cores%n", doctors, DAYS, millis, cores);
+        System.out.printf("%-8s %18s %18s%n", "threads", "global lock ops/s", "striped ops/s");
+
+        // Warm up both variants before measuring
+        run(doctors, 1, millis, false);
+        run(doctors, 1, millis, true);
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double global = run(doctors, threads, millis, false);
+            double striped = run(doctors, threads, millis, true);
+            System.out.printf("%-8d %,18.0f %,18.0f%n", threads, global, striped);
+        }
+    }
+
+    private static double run(int doctors, int threads, long millis, boolean striped) throws InterruptedException {
+        long[] booked = new long[doctors * DAYS];
+        Lock globalLock = new ReentrantLock();
+        StripedLocks doctorLocks = new StripedLocks(64);
+        String[] doctorIDs = new String[doctors];
+        for (int i = 0; i < doctors; i++) {
+            doctorIDs[i] = String.format("D%03d", i);
+        }
+
+        LongAdder bookings = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    int doctor = random.nextInt(doctors);
+                    int day = random.nextInt(DAYS);
+                    Lock lock = striped ? doctorLocks.get(doctorIDs[doctor]) : globalLock;
+                    lock.lock();
+                    try {
+                        book(booked, doctor * DAYS + day, doctorIDs[doctor], day);
+                    } finally {
+                        lock.unlock();
+                    }
+                    count++;
+                }
+                bookings.add(count);
+                done.countDown();
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        deadline[0] = System.nanoTime() + millis * 1_000_000;
+        start.countDown();
+        done.await();
+        return bookings.sum() * 1000.0 / millis;
+    }
+
+    /**
+     * Books the first free slot of a doctor-day and builds its appointment row, reopening the day once it is full.
+     */
+    private static String book(long[] booked, int index, String doctorID, int day) {
+        long free = WORKING_DAY & ~booked[index];
+        if (free == 0) {
+            booked[index] = 0;
+            free = WORKING_DAY;
+        }
+        int slot = Long.numberOfTrailingZeros(free);
+        booked[index] |= 1L << slot;
+        return String.join(",", doctorID, "P1001", Integer.toString(day), Integer.toString(slot), "PENDING");
+    }
+}
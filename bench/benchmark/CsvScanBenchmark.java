@@ -0,0 +1,128 @@
+package benchmark;
+
+import storage.CsvTokenizer;
+import storage.MappedCsvFile;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The CsvScanBenchmark class compares the {@code readLine()} + {@code split(",")} scan used
+ * throughout the services with the {@link CsvTokenizer} and the {@link MappedCsvFile} on a
+ * generated Appointment.csv-shaped file. All scans answer the same query (completed appointments of one patient) and the
+ * benchmark reports the elapsed time and the bytes allocated by each.
+ *
+ * <p>Usage: {@code java benchmark.CsvScanBenchmark [rows] [iterations]} (defaults: 1000000 rows, 5 iterations),
+ * with the classes of both {@code src} and {@code bench} on the class path.</p>
+ */
+public class CsvScanBenchmark {
+    private static final String[] STATUSES = {"PENDING", "CONFIRMED", "COMPLETED", "CANCELLED"};
+
+    /**
+     * One way of scanning the file, returning the number of matching rows.
+     */
+    private interface Scan {
+        int run(String filePath) throws IOException;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional row count and iteration count
+     * @throws IOException if the temporary file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Path file = Files.createTempFile("appointments", ".csv");
+        try {
+            generate(file, rows);
+            System.out.printf("Scanning %,d rows (%,d bytes), %d iterations%n", rows, Files.size(file), iterations);
+
+            // Warm up both paths before measuring
+            for (int i = 0; i < 2; i++) {
+                scanWithSplit(file.toString());
+                scanWithTokenizer(file.toString());
+                scanWithMappedFile(file.toString());
+            }
+
+            report("readLine + split", file.toString(), iterations, CsvScanBenchmark::scanWithSplit);
+            report("CsvTokenizer", file.toString(), iterations, CsvScanBenchmark::scanWithTokenizer);
+            report("MappedCsvFile", file.toString(), iterations, CsvScanBenchmark::scanWithMappedFile);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void generate(Path file, int rows) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("appointmentID,doctorID,patientID,date,timeSlot,status");
+            writer.newLine();
+            for (int i = 0; i < rows; i++) {
+                int hour = 9 + (i % 16) / 2;
+                String start = String.format("%02d:%s", hour, i % 2 == 0 ? "00" : "30");
+                String end = i % 2 == 0 ? String.format("%02d:30", hour) : String.format("%02d:00", hour + 1);
+                writer.write("AP" + (100000 + i) + ",D" + String.format("%03d", i % 50)
+                        + ",P" + (1000 + i % 5000) + "," + String.format("%02d-%02d-26", 1 + i % 28, 1 + i % 12)
+                        + "," + start + "-" + end + "," + STATUSES[i % STATUSES.length]);
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void report(String name, String filePath, int iterations, Scan scan) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int matches = 0;
+        for (int i = 0; i < iterations; i++) {
+            matches = scan.run(filePath);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        System.out.printf("%-18s %8.1f ms/scan %,14d bytes allocated/scan (%d matches)%n",
+                name, elapsed / 1e6 / iterations, allocated / iterations, matches);
+    }
+
+    private static int scanWithSplit(String filePath) throws IOException {
+        int matches = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields[2].equals("P1002") && fields[5].equalsIgnoreCase("COMPLETED")) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static int scanWithTokenizer(String filePath) throws IOException {
+        int matches = 0;
+        try (CsvTokenizer reader = CsvTokenizer.open(filePath)) {
+            while (reader.nextRow()) {
+                if (reader.fieldEquals(2, "P1002") && reader.fieldEqualsIgnoreCase(5, "COMPLETED")) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static int scanWithMappedFile(String filePath) throws IOException {
+        int matches = 0;
+        for (String[] fields : MappedCsvFile.of(filePath).findAll(2, List.of("P1002"))) {
+            if (fields[5].equalsIgnoreCase("COMPLETED")) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,195 @@
+package appointment;
+
+import enums.AppointmentStatus;
+import storage.EntityId;
+
+/**
+ * The Appointment class is the compact in-memory form of one row of Appointment.csv, as kept by
+ * {@link AppointmentRepository}. The date is kept as its {@link Dates} epoch day, the time slot as its
+ * {@link TimeSlots} ordinal and the status as an enum constant, and the repository shares one
+ * String per doctor and patient ID between all of their appointments. The DD-MM-YY and
+ * HH:MM-HH:MM strings are only built when they are asked for.
+ *
+ * <p>Appointments handed out by the repository are copies, so they never change under the caller.</p>
+ */
+public final class Appointment {
+    private final String appointmentID;
+    private final String doctorID;
+    private final String patientID;
+    private int epochDay;
+    private byte timeSlot;
+    private AppointmentStatus status;
+
+    private Appointment(String appointmentID, String doctorID, String patientID, int epochDay, byte timeSlot, AppointmentStatus status) {
+        this.appointmentID = appointmentID;
+        this.doctorID = doctorID;
+        this.patientID = patientID;
+        this.epochDay = epochDay;
+        this.timeSlot = timeSlot;
+        this.status = status;
+    }
+
+    /**
+     * Creates an appointment from its field values.
+     *
+     * @param appointmentID The unique ID of the appointment
+     * @param doctorID      The unique ID of the doctor
+     * @param patientID     The unique ID of the patient
+     * @param date          The date in DD-MM-YY format
+     * @param timeSlot      The time slot in HH:MM-HH:MM format
+     * @param status        The status of the appointment
+     * @return The appointment, or null if an ID cannot be packed or the date or time slot is not valid
+     */
+    static Appointment of(String appointmentID, String doctorID, String patientID, String date, String timeSlot, AppointmentStatus status) {
+        return of(appointmentID, doctorID, patientID, Dates.toEpochDay(date), TimeSlots.toOrdinal(timeSlot), status);
+    }
+
+    /**
+     * Creates an appointment from its decoded field values.
+     *
+     * @param appointmentID The unique ID of the appointment
+     * @param doctorID      The unique ID of the doctor
+     * @param patientID     The unique ID of the patient
+     * @param epochDay      The epoch day of the date
+     * @param slot          The time slot ordinal
+     * @param status        The status of the appointment
+     * @return The appointment, or null if the doctor or patient ID cannot be packed as an
+     *         {@link EntityId}, or the epoch day or slot is out of range
+     */
+    static Appointment of(String appointmentID, String doctorID, String patientID, int epochDay, int slot, AppointmentStatus status) {
+        if (EntityId.encode(doctorID) == EntityId.NONE || EntityId.encode(patientID) == EntityId.NONE) {
+            return null; // The repository indexes appointments by packed doctor and patient ID
+        }
+        if (epochDay < 0 || slot < 0 || slot >= TimeSlots.SLOTS_PER_DAY) {
+            return null;
+        }
+        return new Appointment(appointmentID, doctorID, patientID, epochDay, (byte) slot, status);
+    }
+
+    /**
+     * Creates an appointment from a row in the original Appointment.csv format. Dates are read
+     * with {@link Dates#legacyToEpochDay}, which accepts every form the original format allowed.
+     *
+     * @param fields The row (appointmentID, doctorID, patientID, date, timeSlot, status)
+     * @return The appointment, or null if the row is malformed
+     */
+    public static Appointment fromFields(String[] fields) {
+        if (fields.length < 6) {
+            return null;
+        }
+        AppointmentStatus status;
+        try {
+            status = AppointmentStatus.valueOf(fields[5].trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return of(fields[0], fields[1], fields[2], Dates.legacyToEpochDay(fields[3]), TimeSlots.toOrdinal(fields[4]), status);
+    }
+
+    /**
+     * Creates a copy that does not share the mutable fields with this appointment.
+     *
+     * @return A copy of the appointment
+     */
+    Appointment copy() {
+        return new Appointment(appointmentID, doctorID, patientID, epochDay, timeSlot, status);
+    }
+
+    /**
+     * Gets the unique ID of the appointment.
+     *
+     * @return The unique ID of the appointment
+     */
+    public String getAppointmentID() {
+        return appointmentID;
+    }
+
+    /**
+     * Gets the unique ID of the doctor.
+     *
+     * @return The unique ID of the doctor
+     */
+    public String getDoctorID() {
+        return doctorID;
+    }
+
+    /**
+     * Gets the unique ID of the patient.
+     *
+     * @return The unique ID of the patient
+     */
+    public String getPatientID() {
+        return patientID;
+    }
+
+    /**
+     * Gets the date of the appointment.
+     *
+     * @return The date in DD-MM-YY format
+     */
+    public String getDate() {
+        return Dates.toDate(epochDay);
+    }
+
+    /**
+     * Gets the date of the appointment as an epoch day, for comparing and ordering dates.
+     *
+     * @return The epoch day of the appointment
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Gets the time slot of the appointment.
+     *
+     * @return The time slot in HH:MM-HH:MM format
+     */
+    public String getTimeSlot() {
+        return TimeSlots.toTimeSlot(timeSlot);
+    }
+
+    /**
+     * Gets the time slot of the appointment as its ordinal.
+     *
+     * @return The slot ordinal, from 0 to 47
+     */
+    public int getTimeSlotOrdinal() {
+        return timeSlot;
+    }
+
+    /**
+     * Gets the status of the appointment.
+     *
+     * @return The status of the appointment
+     */
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks whether the appointment has the given status.
+     *
+     * @param expected The status to compare with
+     * @return true if the appointment has that status; false otherwise
+     */
+    public boolean hasStatus(AppointmentStatus expected) {
+        return status == expected;
+    }
+
+    void setStatus(AppointmentStatus status) {
+        this.status = status;
+    }
+
+    void moveTo(int epochDay, int slot) {
+        this.epochDay = epochDay;
+        this.timeSlot = (byte) slot;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("Appointment ID: %s, Doctor ID: %s, Patient ID: %s, Date: %s, Time Slot: %s, Status: %s",
+                appointmentID, doctorID, patientID, getDate(), getTimeSlot(), status);
+    }
+}
@@ -1,5 +1,8 @@
 package appointment;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * The AppointmentManager interface defines the methods required for managing appointments
  * in the hospital management system. It includes functionalities for scheduling,
@@ -8,19 +11,93 @@ package appointment;
 public interface AppointmentManager {
 
     /**
-     * Schedules a new appointment for a patient.
+     * Books an appointment for a patient in an available slot.
      *
      * @param patientID The ID of the patient requesting the appointment
-     * @return The ID of the scheduled appointment, or null if scheduling fails
+     * @param doctorID  The ID of the doctor
+     * @param date      The date of the appointment in DD-MM-YY format
+     * @param timeSlot  The start time in HH:MM format, or the whole slot in HH:MM-HH:MM format
+     * @return The outcome, with the ID of the new appointment if it was booked
+     */
+    BookingResult scheduleAppointment(String patientID, String doctorID, String date, String timeSlot);
+
+    /**
+     * Books a batch of appointments, validating every request and claiming all available slots in one pass.
+     * Requests that cannot be booked do not affect the others.
+     *
+     * @param requests The appointments to book
+     * @return One outcome per request, in the same order
      */
-    String scheduleAppointment(String patientID);
+    List<BookingResult> scheduleAll(List<BookingRequest> requests);
 
     /**
-     * Reschedules an existing appointment.
+     * Holds an available slot for a patient while they confirm it. The hold expires on its own
+     * after {@link #getSlotHoldMillis()} if it is neither confirmed nor released.
+     *
+     * @param patientID The ID of the patient
+     * @param doctorID  The ID of the doctor
+     * @param date      The date of the slot in DD-MM-YY format
+     * @param timeSlot  The start time in HH:MM format, or the whole slot in HH:MM-HH:MM format
+     * @return The hold, or null if the slot is not valid or not available
+     */
+    DoctorAvailabilityIndex.SlotHold holdSlot(String patientID, String doctorID, String date, String timeSlot);
+
+    /**
+     * Books the slot of a hold and creates the pending appointment for it.
+     *
+     * @param hold The hold placed on the slot
+     * @return The outcome, with the ID of the new appointment if it was booked
+     */
+    BookingResult confirmHold(DoctorAvailabilityIndex.SlotHold hold);
+
+    /**
+     * Releases a hold without booking its slot.
+     *
+     * @param hold The hold placed on the slot
+     */
+    void releaseHold(DoctorAvailabilityIndex.SlotHold hold);
+
+    /**
+     * Gets how long a slot stays held for a patient.
+     *
+     * @return The hold duration in milliseconds
+     */
+    long getSlotHoldMillis();
+
+    /**
+     * Moves an existing appointment to another available slot of the same doctor.
      *
      * @param appointmentID The ID of the appointment to be rescheduled
+     * @param newDate       The new date in DD-MM-YY format
+     * @param newTimeSlot   The new start time in HH:MM format, or the whole slot in HH:MM-HH:MM format
+     * @return The outcome of the request
+     */
+    BookingResult rescheduleAppointment(String appointmentID, String newDate, String newTimeSlot);
+
+    /**
+     * Accepts a pending appointment request, provided it is still pending at the date and time slot it was shown with.
+     *
+     * @param pending The appointment as it was shown to the doctor
+     * @return true if the appointment is now confirmed; false if it was changed in the meantime
+     */
+    boolean acceptAppointment(Appointment pending);
+
+    /**
+     * Declines a pending appointment request and frees its slot, provided it is still pending at the date and
+     * time slot it was shown with.
+     *
+     * @param pending The appointment as it was shown to the doctor
+     * @return true if the appointment is now cancelled; false if it was changed in the meantime
+     */
+    boolean declineAppointment(Appointment pending);
+
+    /**
+     * Marks a confirmed appointment as completed once its outcome is recorded.
+     *
+     * @param appointmentID The ID of the appointment
+     * @return true if the appointment is now completed; false if it is unknown or no longer confirmed
      */
-    void rescheduleAppointment(String appointmentID);
+    boolean completeAppointment(String appointmentID);
 
     /**
      * Cancels an existing appointment.
@@ -36,4 +113,14 @@ public interface AppointmentManager {
      * @return The current status of the appointment
      */
     String viewAppointmentStatus(String appointmentID);
+
+    /**
+     * Finds the earliest free appointment slots from a date onward.
+     *
+     * @param fromDate  The first date to consider, in DD-MM-YY format
+     * @param count     The maximum number of slots to return
+     * @param doctorIDs The doctors to consider, or null or empty for all doctors
+     * @return Up to {@code count} free slots ordered by date and time
+     */
+    List<AvailableSlot> findEarliestAvailableSlots(String fromDate, int count, Collection<String> doctorIDs);
 }
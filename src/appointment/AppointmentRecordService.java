@@ -1,8 +1,8 @@
 package appointment;
 
 import enums.AppointmentStatus;
+import storage.SharedCsvFile;
 import java.io.*;
-import java.util.*;
 
 /**
  * The AppointmentRecordService class provides functionality to manage appointment outcome
@@ -11,9 +11,10 @@ import java.util.*;
 public class AppointmentRecordService {
     private static final String APPOINTMENT_RECORD_FILE = "resources/AppointmentRecord.csv";
 
+    private final AppointmentService appointmentService = new AppointmentService();
+
     /**
-     * Adds an appointment outcome record to the system and updates the appointment status
-     * to "completed" in the Appointment.csv file.
+     * Updates the appointment status to "completed" and adds its outcome record to the system.
      *
      * @param appointmentID        The unique ID of the appointment
      * @param diagnosis            The diagnosis made during the appointment
@@ -23,8 +24,9 @@ public class AppointmentRecordService {
      * @param date                 The date of the appointment
      * @param typeOfService        The type of service provided during the appointment
      * @param consultationNotes    Additional consultation notes
+     * @return true if the outcome was recorded; false if the appointment is unknown or no longer confirmed
      */
-    public void addAppointmentOutcomeRecord(
+    public boolean addAppointmentOutcomeRecord(
             String appointmentID,
             String diagnosis,
             String prescriptionMedicine,
@@ -34,8 +36,13 @@ public class AppointmentRecordService {
             String typeOfService,
             String consultationNotes) {
 
-        // Step 1: Add the outcome record to AppointmentRecord.csv
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(APPOINTMENT_RECORD_FILE, true))) {
+        // Step 1: Set the status to "completed" under the doctor's lock, unless the appointment changed meanwhile
+        if (!appointmentService.completeAppointment(appointmentID)) {
+            return false;
+        }
+
+        // Step 2: Add the outcome record to AppointmentRecord.csv
+        try {
             String line = String.join(",",
                     appointmentID,
                     diagnosis,
@@ -47,56 +54,10 @@ public class AppointmentRecordService {
                     typeOfService,
                     consultationNotes
             );
-            writer.write(line);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        // Step 2: Update the status in Appointment.csv to "completed" for the given AppointmentID
-        List<String[]> appointments = loadAppointments();
-
-        for (String[] appointment : appointments) {
-            if (appointment[0].equals(appointmentID)) {
-                appointment[5] = AppointmentStatus.COMPLETED.name(); // Update the Status column (index 5) to "completed"
-                break;
-            }
-        }
-
-        // Step 3: Save the updated appointments back to Appointment.csv
-        saveAppointments(appointments);
-    }
-
-    /**
-     * Loads all appointments from the Appointment.csv file.
-     *
-     * @return A list of string arrays, where each array represents an appointment record
-     */
-    private List<String[]> loadAppointments() {
-        List<String[]> appointments = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader("resources/Appointment.csv"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                appointments.add(line.split(","));
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return appointments;
-    }
-
-    /**
-     * Saves the updated appointments back to the Appointment.csv file.
-     *
-     * @param appointments The list of updated appointment records
-     */
-    private void saveAppointments(List<String[]> appointments) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("resources/Appointment.csv"))) {
-            for (String[] appointment : appointments) {
-                writer.write(String.join(",", appointment));
-                writer.newLine();
-            }
+            SharedCsvFile.of(APPOINTMENT_RECORD_FILE).append(line);
         } catch (IOException e) {
             e.printStackTrace();
         }
+        return true;
     }
-}
\ No newline at end of file
+}
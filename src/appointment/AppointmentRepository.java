@@ -0,0 +1,550 @@
+package appointment;
+
+import enums.AppointmentStatus;
+import java.io.*;
+import storage.AppendOnlyJournal;
+import storage.EntityId;
+import storage.IntObjectMap;
+import storage.StringDictionary;
+import java.util.*;
+
+/**
+ * The AppointmentRepository class is the single shared store for the appointments in
+ * Appointment.csv. The file is loaded once, all reads are served from memory and every
+ * change is applied in memory immediately. Each change is then appended to
+ * Appointment.journal as the full new row of the appointment, so a booking or status
+ * change costs one small append rather than a rewrite of the file. The journal is folded
+ * into the repository on startup and compacted into Appointment.csv in the background,
+ * which replaces the file atomically.
+ *
+ * <p>Appointments are also indexed by patient, by doctor and status, and by doctor and date. The
+ * indexes are updated with every change, so the per-role queries cost time proportional to the
+ * matching appointments rather than to the whole appointment history. Each doctor's dates are
+ * kept in a sorted map, so a day, a week or everything from today onward is a range of that
+ * map and a doctor with years of history still gets the next week's schedule at once. The
+ * patient and doctor indexes are keyed by {@link EntityId}, so a lookup hashes an int rather
+ * than a String and the indexes hold no boxed keys however many patients there are.</p>
+ *
+ * <p>Rows are held as compact {@link Appointment} objects rather than arrays of Strings, and each
+ * doctor and patient ID is stored once however many appointments refer to it.</p>
+ *
+ * <p>Appointment.csv is dictionary-encoded: the doctor ID, patient ID and status of each row are
+ * int codes into the {@link StringDictionary} kept in Appointment.dict, and the date and time slot
+ * are written as their epoch day and slot ordinal. A file still in the original format, with the
+ * values written out, is read as before and rewritten in the encoded format on startup. Journal
+ * records hold the values themselves, so they never refer to a code that is not saved yet.</p>
+ *
+ * <p>Appointment.dict is kept and versioned together with Appointment.csv and must contain every
+ * code the file uses. A file that does not match its dictionary stops the repository from
+ * loading, rather than dropping the rows it cannot decode.</p>
+ */
+public final class AppointmentRepository {
+    private static final String APPOINTMENT_FILE = "resources/Appointment.csv";
+    private static final String APPOINTMENT_JOURNAL = "resources/Appointment.journal";
+    private static final String DICTIONARY_FILE = "resources/Appointment.dict";
+    private static final String HEADER = "appointmentID,doctorCode,patientCode,epochDay,slot,statusCode";
+    private static final int JOURNAL_MAX_RECORDS = 1000;
+    private static final long JOURNAL_MAX_AGE_MS = 60_000;
+
+    private static AppointmentRepository instance;
+
+    private final Map<String, Appointment> appointments = new LinkedHashMap<>();
+    private final IntObjectMap<Map<String, Appointment>> byPatient = new IntObjectMap<>();
+    private final IntObjectMap<Map<AppointmentStatus, Map<String, Appointment>>> byDoctorAndStatus = new IntObjectMap<>();
+    private final IntObjectMap<NavigableMap<Integer, Map<String, Appointment>>> byDoctorAndDate = new IntObjectMap<>();
+    private final StringDictionary dictionary;
+    private final AppendOnlyJournal journal;
+
+    /**
+     * Returns the shared repository instance, loading Appointment.csv on first use.
+     *
+     * @return The shared AppointmentRepository
+     */
+    public static synchronized AppointmentRepository getInstance() {
+        if (instance == null) {
+            instance = new AppointmentRepository();
+        }
+        return instance;
+    }
+
+    private AppointmentRepository() {
+        try {
+            dictionary = StringDictionary.load(DICTIONARY_FILE);
+        } catch (IOException e) {
+            // Without the dictionary the codes in Appointment.csv cannot be read, and a flush would overwrite them
+            throw new IllegalStateException("Unable to read Appointment.dict", e);
+        }
+        journal = new AppendOnlyJournal(APPOINTMENT_FILE, APPOINTMENT_JOURNAL,
+                JOURNAL_MAX_RECORDS, JOURNAL_MAX_AGE_MS, this, this::snapshotLines);
+        boolean rewrite = load();
+        for (String[] record : journal.replay()) {
+            applyRecord(record);
+        }
+        if (rewrite) {
+            journal.rewrite();
+        }
+    }
+
+    /**
+     * Loads all appointments from Appointment.csv into memory, in either the encoded or the original format.
+     * Blank lines are skipped, and a row that cannot be read stops the load in either format, so that
+     * converting or compacting the file never drops it.
+     *
+     * @return true if the file is missing or in the original format, so it must be rewritten in the encoded format
+     */
+    private boolean load() {
+        boolean rewrite = false;
+        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE))) {
+            String line = reader.readLine();
+            boolean encoded = HEADER.equals(line);
+            rewrite = !encoded;
+
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                Appointment appointment;
+                if (encoded) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    appointment = decode(fields);
+                } else {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    if (fields.length >= 6) {
+                        fields[1] = dictionary.canonical(fields[1]);
+                        fields[2] = dictionary.canonical(fields[2]);
+                    }
+                    appointment = Appointment.fromFields(fields);
+                    if (appointment == null) {
+                        // The file is about to be rewritten in the encoded format, which would drop the row for good
+                        throw new IllegalStateException("Appointment.csv has a row that cannot be converted: " + line);
+                    }
+                }
+                put(appointment);
+            }
+        } catch (FileNotFoundException e) {
+            rewrite = true; // No appointments yet; the file is created with its header
+        } catch (IOException e) {
+            System.err.println("Error reading Appointment.csv: " + e.getMessage());
+        }
+        return rewrite;
+    }
+
+    /**
+     * Applies a journal record (appointmentID, doctorID, patientID, epochDay, slot, status), which
+     * replaces the whole appointment, so replaying a record twice leaves the same state.
+     *
+     * @param record The journal record
+     */
+    private void applyRecord(String[] record) {
+        Appointment appointment = null;
+        if (record.length >= 6) {
+            try {
+                appointment = Appointment.of(record[0], dictionary.canonical(record[1]), dictionary.canonical(record[2]),
+                        Integer.parseInt(record[3]), Integer.parseInt(record[4]), AppointmentStatus.valueOf(record[5]));
+            } catch (IllegalArgumentException e) {
+                appointment = null; // Not a number or an unknown status
+            }
+        }
+        if (appointment == null) {
+            System.err.println("Skipping malformed record in Appointment.journal: " + String.join(",", record));
+            return;
+        }
+        put(appointment);
+    }
+
+    /**
+     * Stores an appointment in memory, replacing and unindexing any appointment with the same ID.
+     *
+     * @param appointment The appointment
+     */
+    private void put(Appointment appointment) {
+        Appointment previous = appointments.put(appointment.getAppointmentID(), appointment);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(appointment);
+    }
+
+    /**
+     * Formats an appointment as a journal record with its values written out.
+     *
+     * @param appointment The appointment
+     * @return The fields of the record
+     */
+    private static String[] journalRecord(Appointment appointment) {
+        return new String[]{appointment.getAppointmentID(), appointment.getDoctorID(), appointment.getPatientID(),
+                Integer.toString(appointment.getEpochDay()), Integer.toString(appointment.getTimeSlotOrdinal()),
+                appointment.getStatus().name()};
+    }
+
+    /**
+     * Creates an appointment from an encoded row. The decoded IDs are the dictionary's shared instances.
+     *
+     * @param fields The row (appointmentID, doctorCode, patientCode, epochDay, slot, statusCode)
+     * @return The appointment
+     * @throws IllegalStateException if the row is malformed or refers to a code that is not in Appointment.dict;
+     *                               skipping it would drop the appointment for good on the next compaction
+     */
+    private Appointment decode(String[] fields) {
+        int doctorCode;
+        int patientCode;
+        int epochDay;
+        int slot;
+        int statusCode;
+        try {
+            doctorCode = Integer.parseInt(fields[1]);
+            patientCode = Integer.parseInt(fields[2]);
+            epochDay = Integer.parseInt(fields[3]);
+            slot = Integer.parseInt(fields[4]);
+            statusCode = Integer.parseInt(fields[5]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalStateException("Appointment.csv has a malformed encoded row: " + String.join(",", fields), e);
+        }
+
+        Appointment appointment;
+        try {
+            appointment = Appointment.of(fields[0], dictionary.decode(doctorCode), dictionary.decode(patientCode),
+                    epochDay, slot, AppointmentStatus.valueOf(dictionary.decode(statusCode)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Appointment.csv does not match Appointment.dict at row: "
+                    + String.join(",", fields), e);
+        }
+        if (appointment == null) {
+            throw new IllegalStateException("Appointment.csv has an encoded row out of range: " + String.join(",", fields));
+        }
+        return appointment;
+    }
+
+    /**
+     * Formats an appointment as an encoded row, adding any new values to the dictionary.
+     *
+     * @param appointment The appointment
+     * @return The comma-separated fields
+     */
+    private String encode(Appointment appointment) {
+        return appointment.getAppointmentID()
+                + ',' + dictionary.encode(appointment.getDoctorID())
+                + ',' + dictionary.encode(appointment.getPatientID())
+                + ',' + appointment.getEpochDay()
+                + ',' + appointment.getTimeSlotOrdinal()
+                + ',' + dictionary.encode(appointment.getStatus().name());
+    }
+
+    /**
+     * Adds an appointment to the secondary indexes. Buckets keep their appointments in the order they were added.
+     *
+     * @param appointment The appointment
+     */
+    private void index(Appointment appointment) {
+        String appointmentID = appointment.getAppointmentID();
+        byPatient.computeIfAbsent(patientKey(appointment), key -> new LinkedHashMap<>()).put(appointmentID, appointment);
+        byDoctorAndStatus.computeIfAbsent(doctorKey(appointment), key -> new EnumMap<>(AppointmentStatus.class))
+                .computeIfAbsent(appointment.getStatus(), key -> new LinkedHashMap<>()).put(appointmentID, appointment);
+        byDoctorAndDate.computeIfAbsent(doctorKey(appointment), key -> new TreeMap<>())
+                .computeIfAbsent(appointment.getEpochDay(), key -> new LinkedHashMap<>()).put(appointmentID, appointment);
+    }
+
+    /**
+     * Removes an appointment from the secondary indexes. Must be called before any indexed field changes.
+     *
+     * @param appointment The appointment as it was indexed
+     */
+    private void unindex(Appointment appointment) {
+        String appointmentID = appointment.getAppointmentID();
+        removeFrom(byPatient, patientKey(appointment), appointmentID);
+        Map<AppointmentStatus, Map<String, Appointment>> statuses = byDoctorAndStatus.get(doctorKey(appointment));
+        if (statuses != null) {
+            removeFrom(statuses, appointment.getStatus(), appointmentID);
+            if (statuses.isEmpty()) {
+                byDoctorAndStatus.remove(doctorKey(appointment));
+            }
+        }
+        removeFromDay(appointment);
+    }
+
+    /**
+     * Changes the status of an indexed appointment and moves it to the matching doctor-and-status bucket.
+     *
+     * @param appointment The indexed appointment
+     * @param newStatus   The new status of the appointment
+     */
+    private void moveStatus(Appointment appointment, AppointmentStatus newStatus) {
+        Map<AppointmentStatus, Map<String, Appointment>> statuses =
+                byDoctorAndStatus.computeIfAbsent(doctorKey(appointment), key -> new EnumMap<>(AppointmentStatus.class));
+        removeFrom(statuses, appointment.getStatus(), appointment.getAppointmentID());
+        appointment.setStatus(newStatus);
+        statuses.computeIfAbsent(newStatus, key -> new LinkedHashMap<>()).put(appointment.getAppointmentID(), appointment);
+    }
+
+    private void removeFromDay(Appointment appointment) {
+        NavigableMap<Integer, Map<String, Appointment>> days = byDoctorAndDate.get(doctorKey(appointment));
+        if (days != null) {
+            removeFrom(days, appointment.getEpochDay(), appointment.getAppointmentID());
+            if (days.isEmpty()) {
+                byDoctorAndDate.remove(doctorKey(appointment));
+            }
+        }
+    }
+
+    private static int doctorKey(Appointment appointment) {
+        return EntityId.encode(appointment.getDoctorID());
+    }
+
+    private static int patientKey(Appointment appointment) {
+        return EntityId.encode(appointment.getPatientID());
+    }
+
+    private static void removeFrom(IntObjectMap<Map<String, Appointment>> index, int key, String appointmentID) {
+        Map<String, Appointment> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(appointmentID);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, Map<String, Appointment>> index, K key, String appointmentID) {
+        Map<String, Appointment> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(appointmentID);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static List<Appointment> copies(Collection<Appointment> bucket) {
+        List<Appointment> result = new ArrayList<>(bucket.size());
+        for (Appointment appointment : bucket) {
+            result.add(appointment.copy());
+        }
+        return result;
+    }
+
+    private Collection<Appointment> doctorBucket(String doctorID, AppointmentStatus status) {
+        Map<AppointmentStatus, Map<String, Appointment>> statuses = byDoctorAndStatus.get(EntityId.encode(doctorID));
+        Map<String, Appointment> bucket = statuses == null ? null : statuses.get(status);
+        return bucket == null ? Collections.emptyList() : bucket.values();
+    }
+
+    /**
+     * Retrieves a copy of the appointment with the given ID.
+     *
+     * @param appointmentID The unique ID of the appointment
+     * @return The appointment, or null if no such appointment exists
+     */
+    public synchronized Appointment findById(String appointmentID) {
+        Appointment appointment = appointments.get(appointmentID);
+        return appointment == null ? null : appointment.copy();
+    }
+
+    /**
+     * Checks whether an appointment with the given ID exists.
+     *
+     * @param appointmentID The unique ID of the appointment
+     * @return true if the appointment exists; false otherwise
+     */
+    public synchronized boolean exists(String appointmentID) {
+        return appointments.containsKey(appointmentID);
+    }
+
+    /**
+     * Retrieves copies of all appointments in file order.
+     *
+     * @return A list of the appointments
+     */
+    public synchronized List<Appointment> findAll() {
+        return copies(appointments.values());
+    }
+
+    /**
+     * Retrieves copies of all appointments of a patient in file order.
+     *
+     * @param patientID The unique ID of the patient
+     * @return A list of the appointments
+     */
+    public synchronized List<Appointment> findByPatient(String patientID) {
+        Map<String, Appointment> bucket = byPatient.get(EntityId.encode(patientID));
+        return bucket == null ? new ArrayList<>() : copies(bucket.values());
+    }
+
+    /**
+     * Retrieves copies of the appointments of a patient with a given status, in file order.
+     *
+     * @param patientID The unique ID of the patient
+     * @param status    The status to match
+     * @return A list of the appointments
+     */
+    public synchronized List<Appointment> findByPatientAndStatus(String patientID, AppointmentStatus status) {
+        List<Appointment> result = new ArrayList<>();
+        Map<String, Appointment> bucket = byPatient.get(EntityId.encode(patientID));
+        if (bucket != null) {
+            for (Appointment appointment : bucket.values()) {
+                if (appointment.hasStatus(status)) {
+                    result.add(appointment.copy());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves copies of the appointments of a doctor with a given status,
+     * in the order they reached that status.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param status   The status to match
+     * @return A list of the appointments
+     */
+    public synchronized List<Appointment> findByDoctorAndStatus(String doctorID, AppointmentStatus status) {
+        return copies(doctorBucket(doctorID, status));
+    }
+
+    /**
+     * Retrieves copies of the appointments of a doctor with a given status on a date, ordered by time slot.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param status   The status to match
+     * @param date     The date of the appointments in DD-MM-YY format
+     * @return A list of the appointments
+     */
+    public synchronized List<Appointment> findByDoctorStatusAndDate(String doctorID, AppointmentStatus status, String date) {
+        int epochDay = Dates.toEpochDay(date);
+        return findByDoctorBetween(doctorID, status, epochDay, epochDay + 1, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves one page of copies of a doctor's appointments in a range of dates, ordered by date
+     * and time slot. Only the dates in the range are visited, so a day or a week costs the same
+     * however long the doctor's history is.
+     *
+     * @param doctorID     The unique ID of the doctor
+     * @param status       The status to match, or null for any status
+     * @param fromEpochDay The first day of the range, as a {@link Dates} epoch day
+     * @param toEpochDay   The day after the last day of the range
+     * @param offset       The number of matching appointments to skip
+     * @param limit        The maximum number of appointments to return
+     * @return A list of the appointments
+     */
+    public synchronized List<Appointment> findByDoctorBetween(String doctorID, AppointmentStatus status, int fromEpochDay, int toEpochDay, int offset, int limit) {
+        List<Appointment> result = new ArrayList<>();
+        NavigableMap<Integer, Map<String, Appointment>> days = byDoctorAndDate.get(EntityId.encode(doctorID));
+        if (days == null || fromEpochDay >= toEpochDay || limit <= 0) {
+            return result;
+        }
+
+        int skipped = 0;
+        for (Map<String, Appointment> day : days.subMap(fromEpochDay, true, toEpochDay, false).values()) {
+            List<Appointment> ordered = new ArrayList<>(day.values());
+            ordered.sort(Comparator.comparingInt(Appointment::getTimeSlotOrdinal));
+            for (Appointment appointment : ordered) {
+                if (status != null && !appointment.hasStatus(status)) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                    continue;
+                }
+                result.add(appointment.copy());
+                if (result.size() == limit) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a new appointment and records it in the journal.
+     *
+     * @param appointmentID The unique ID of the appointment
+     * @param doctorID      The unique ID of the doctor
+     * @param patientID     The unique ID of the patient
+     * @param date          The date of the appointment in DD-MM-YY format
+     * @param timeSlot      The time slot of the appointment in HH:MM-HH:MM format
+     * @param status        The status of the appointment
+     * @throws IllegalArgumentException if an ID cannot be packed as an {@link EntityId}, or the date or time slot is not valid;
+     *                                  callers validate these before claiming a slot for the appointment
+     */
+    public synchronized void add(String appointmentID, String doctorID, String patientID, String date, String timeSlot, AppointmentStatus status) {
+        Appointment appointment = Appointment.of(appointmentID, dictionary.canonical(doctorID), dictionary.canonical(patientID), date, timeSlot, status);
+        if (appointment == null) {
+            throw new IllegalArgumentException("Invalid doctor ID, patient ID, date or time slot: "
+                    + doctorID + " " + patientID + " " + date + " " + timeSlot);
+        }
+        put(appointment);
+        journal.append(journalRecord(appointment));
+    }
+
+    /**
+     * Updates the status of an appointment and records it in the journal.
+     *
+     * @param appointmentID The unique ID of the appointment
+     * @param newStatus     The new status of the appointment
+     * @return true if the appointment was found and updated; false otherwise
+     */
+    public synchronized boolean updateStatus(String appointmentID, AppointmentStatus newStatus) {
+        Appointment appointment = appointments.get(appointmentID);
+        if (appointment == null) {
+            return false;
+        }
+        moveStatus(appointment, newStatus);
+        journal.append(journalRecord(appointment));
+        return true;
+    }
+
+    /**
+     * Moves an appointment to a new date and time slot, sets its status and records it in the journal.
+     *
+     * @param appointmentID The unique ID of the appointment
+     * @param newDate       The new date of the appointment in DD-MM-YY format
+     * @param newTimeSlot   The new time slot of the appointment in HH:MM-HH:MM format
+     * @param newStatus     The new status of the appointment
+     * @return true if the appointment was found and updated; false otherwise
+     * @throws IllegalArgumentException if the date or time slot is not valid
+     */
+    public synchronized boolean reschedule(String appointmentID, String newDate, String newTimeSlot, AppointmentStatus newStatus) {
+        int epochDay = Dates.toEpochDay(newDate);
+        int slot = TimeSlots.toOrdinal(newTimeSlot);
+        if (epochDay < 0 || slot < 0) {
+            throw new IllegalArgumentException("Invalid date or time slot: " + newDate + " " + newTimeSlot);
+        }
+        Appointment appointment = appointments.get(appointmentID);
+        if (appointment == null) {
+            return false;
+        }
+        removeFromDay(appointment);
+        appointment.moveTo(epochDay, slot);
+        byDoctorAndDate.computeIfAbsent(doctorKey(appointment), key -> new TreeMap<>())
+                .computeIfAbsent(epochDay, key -> new LinkedHashMap<>()).put(appointmentID, appointment);
+        moveStatus(appointment, newStatus);
+        journal.append(journalRecord(appointment));
+        return true;
+    }
+
+    /**
+     * Produces the full contents of Appointment.csv for journal compaction, and saves the dictionary
+     * first so that every code in the new file can be decoded. Called by the journal while holding
+     * this repository's lock.
+     *
+     * @return The header followed by one encoded line per appointment, or null to skip the
+     *         compaction if the dictionary cannot be saved
+     */
+    private List<String> snapshotLines() {
+        List<String> lines = new ArrayList<>(appointments.size() + 1);
+        lines.add(HEADER);
+        for (Appointment appointment : appointments.values()) {
+            lines.add(encode(appointment));
+        }
+        try {
+            dictionary.save();
+        } catch (IOException e) {
+            System.err.println("Error writing Appointment.dict: " + e.getMessage());
+            return null; // The journal keeps its records, so nothing is lost
+        }
+        return lines;
+    }
+}
@@ -1,81 +1,199 @@
 package appointment;
 
 import enums.AppointmentStatus;
+import enums.BookingOutcome;
 import enums.UserRole;
 import enums.DoctorAvailabilityStatus;
+import storage.CsvTokenizer;
+import storage.EntityId;
+import storage.IdAllocator;
+import storage.IntIntMap;
+import storage.StripedLocks;
 import java.io.*;
 import java.util.*;
-import java.util.Random;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.regex.Pattern;
+import java.util.concurrent.locks.Lock;
 
 /**
  * The AppointmentService class provides functionality for managing appointments,
  * including scheduling, rescheduling, canceling, and viewing appointment statuses.
  * It extends the DoctorAvailabilityService and implements the AppointmentManager interface.
+ *
+ * <p>Booking and rescheduling take complete requests and return a {@link BookingResult}, so
+ * they can be called from menus, batch jobs and other threads alike; the console prompts live
+ * in the patient menu. A batch of bookings is validated and claimed against the availability
+ * index in one pass with {@link #scheduleAll}.</p>
+ *
+ * <p>No lock is held while a patient answers prompts. An interactive booking holds the chosen
+ * slot with {@link #holdSlot} while the patient confirms it, then books it with
+ * {@link #confirmHold} or gives it back with {@link #releaseHold}; a hold that is never confirmed
+ * expires on its own. Rescheduling reads the version of the chosen slot and claims the slot with a
+ * compare-and-set on that version, which fails fast if someone else took it first. Changes to
+ * an existing appointment (rescheduling, cancelling) then run under a lock striped by doctor ID,
+ * so they always see the appointment's latest state, while different doctors proceed in
+ * parallel. Accepting, declining and completing an appointment take the same lock.</p>
  */
 public class AppointmentService extends DoctorAvailabilityService implements AppointmentManager {
-    private static final String APPOINTMENT_FILE = "resources/Appointment.csv";
     private static final String USER_FILE = "resources/User.csv";
-    private static final String DOCTOR_AVAILABILITY_FILE = "resources/DoctorAvailability.csv";
+    private static final String APPOINTMENT_ID_SEQUENCE = "resources/AppointmentID.seq";
+    private static final String APPOINTMENT_ID_PREFIX = "AP";
+    private static final int APPOINTMENT_ID_BLOCK = 1000;
+    private static final long FIRST_APPOINTMENT_NUMBER = 1000; // Above the legacy random AP100-AP999 range
+    private static final StripedLocks DOCTOR_LOCKS = new StripedLocks(64); // Shared by all sessions
+    private static final long SLOT_HOLD_MILLIS = Long.getLong("hms.slotHoldMillis", 5 * 60_000L);
+    private final DoctorAvailabilityIndex availabilityIndex = DoctorAvailabilityIndex.getInstance();
+    private final AppointmentRepository appointmentRepository = AppointmentRepository.getInstance();
 
     /**
-     * Schedules a new appointment for a patient, validating doctor availability, date, and time slot.
+     * Books an appointment for a patient in an available slot.
      *
      * @param patientID The unique ID of the patient requesting the appointment
-     * @return The unique ID of the scheduled appointment
+     * @param doctorID  The unique ID of the doctor
+     * @param date      The date of the appointment in DD-MM-YY format
+     * @param timeSlot  The start time in HH:MM format, or the whole slot in HH:MM-HH:MM format
+     * @return The outcome, with the ID of the new appointment if it was booked
      */
     @Override
-    public String scheduleAppointment(String patientID) {
-        Scanner scanner = new Scanner(System.in);
-        String doctorID;
-        String date;
-        String timeSlot;
-
-        // Step 1: Validate Doctor ID with slot availability check
-        while (true) {
-            System.out.print("Enter Doctor ID: ");
-            doctorID = scanner.nextLine();
-            if (isValidDoctorID(doctorID) && hasAvailableSlots(doctorID)) {
-                break;
+    public BookingResult scheduleAppointment(String patientID, String doctorID, String date, String timeSlot) {
+        return scheduleAll(List.of(new BookingRequest(patientID, doctorID, date, timeSlot))).get(0);
+    }
+
+    /**
+     * Books a batch of appointments. User.csv is read once for the whole batch, every request is
+     * validated, and all valid slots are claimed in a single pass over the availability index.
+     * A slot requested twice in the batch is booked for the first request only. If the appointment
+     * for a claimed slot cannot be saved, that slot is released again and the other requests are
+     * still booked.
+     *
+     * @param requests The appointments to book
+     * @return One outcome per request, in the same order
+     */
+    @Override
+    public List<BookingResult> scheduleAll(List<BookingRequest> requests) {
+        List<BookingResult> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        IntIntMap userRoles = loadUserRoles();
+        List<String[]> slots = new ArrayList<>(requests.size());
+        List<Integer> positions = new ArrayList<>(requests.size());
+
+        // Step 1: Validate every request
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            String timeSlot = toHalfHourSlot(request.getTimeSlot());
+            BookingOutcome invalid;
+            if (userRoles.get(EntityId.encode(request.getDoctorID()), -1) != UserRole.DOCTOR.ordinal()
+                    || !isDoctorInAvailability(request.getDoctorID())) {
+                invalid = BookingOutcome.UNKNOWN_DOCTOR;
+            } else if (userRoles.get(EntityId.encode(request.getPatientID()), -1) != UserRole.PATIENT.ordinal()) {
+                invalid = BookingOutcome.UNKNOWN_PATIENT;
+            } else if (!isValidDateFormat(request.getDate())) {
+                invalid = BookingOutcome.INVALID_DATE;
+            } else if (timeSlot == null) {
+                invalid = BookingOutcome.INVALID_TIME_SLOT;
             } else {
-                System.out.println("The selected doctor has no available slots. Please choose another doctor.");
+                slots.add(new String[]{request.getDoctorID(), request.getDate(), timeSlot});
+                positions.add(i);
+                continue;
             }
+            results.set(i, new BookingResult(invalid, null, request.getDate(),
+                    timeSlot == null ? request.getTimeSlot() : timeSlot));
         }
 
-        // Step 2: Validate Date and Check Slot Availability on the Date
-        while (true) {
-            System.out.print("Enter the date (e.g., DD-MM-YY): ");
-            date = scanner.nextLine();
-            if (isValidDateFormat(date) && isDoctorAvailableOnDate(doctorID, date)) {
-                break;
-            } else if (!isValidDateFormat(date)) {
-                System.out.println("Invalid date format. Please use DD-MM-YY.");
-            } else {
-                System.out.println("The doctor is not available on this date or has no available slots. Please choose another date.");
+        // Step 2: Claim all valid slots at once and create the appointments for the booked ones
+        boolean[] booked = availabilityIndex.bookAvailableSlots(slots);
+        IdAllocator allocator = null;
+        for (int j = 0; j < booked.length; j++) {
+            BookingRequest request = requests.get(positions.get(j));
+            String timeSlot = slots.get(j)[2];
+            if (!booked[j]) {
+                results.set(positions.get(j), new BookingResult(BookingOutcome.SLOT_UNAVAILABLE, null, request.getDate(), timeSlot));
+                continue;
+            }
+            try {
+                if (allocator == null) {
+                    allocator = appointmentIDs();
+                }
+                String appointmentID = APPOINTMENT_ID_PREFIX + allocator.next();
+                saveAppointmentDetails(appointmentID, request.getDoctorID(), request.getPatientID(), request.getDate(), timeSlot,
+                        AppointmentStatus.PENDING);
+                results.set(positions.get(j), new BookingResult(BookingOutcome.BOOKED, appointmentID, request.getDate(), timeSlot));
+            } catch (RuntimeException e) {
+                results.set(positions.get(j), notSaved(request.getDoctorID(), request.getDate(), timeSlot, e));
             }
         }
+        return results;
+    }
 
-        // Step 3: Validate Time Slot
-        while (true) {
-            System.out.print("Enter the time slot (e.g., 09:00): ");
-            timeSlot = scanner.nextLine();
-            String formattedTimeSlot = formatToHalfHourSlot(timeSlot);
+    /**
+     * Releases a slot that was claimed for an appointment that could not be saved.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param date     The date of the slot in DD-MM-YY format
+     * @param timeSlot The time slot in HH:MM-HH:MM format
+     * @param cause    Why the appointment could not be saved
+     * @return The outcome to report for the request
+     */
+    private BookingResult notSaved(String doctorID, String date, String timeSlot, RuntimeException cause) {
+        System.err.println("Error saving appointment: " + cause.getMessage());
+        updateSlotStatus(doctorID, date, timeSlot, DoctorAvailabilityStatus.AVAILABLE.name());
+        return new BookingResult(BookingOutcome.NOT_SAVED, null, date, timeSlot);
+    }
 
-            if (!formattedTimeSlot.isEmpty() && isValidTimeSlotFormat(formattedTimeSlot) && isAvailableSlot(doctorID, date, formattedTimeSlot)) {
-                timeSlot = formattedTimeSlot; // Use the correctly formatted time slot
-                break;
-            } else {
-                System.out.println("Invalid time slot or unavailable. Please check available slots for this doctor.");
-            }
+    /**
+     * Holds an available slot for a patient while they confirm it.
+     *
+     * @param patientID The unique ID of the patient
+     * @param doctorID  The unique ID of the doctor
+     * @param date      The date of the slot in DD-MM-YY format
+     * @param timeSlot  The start time in HH:MM format, or the whole slot in HH:MM-HH:MM format
+     * @return The hold, or null if an ID cannot be packed as an {@link EntityId}, or the slot is not valid or not available
+     */
+    @Override
+    public DoctorAvailabilityIndex.SlotHold holdSlot(String patientID, String doctorID, String date, String timeSlot) {
+        String formattedTimeSlot = toHalfHourSlot(timeSlot);
+        if (formattedTimeSlot == null || EntityId.encode(patientID) == EntityId.NONE || EntityId.encode(doctorID) == EntityId.NONE) {
+            return null; // The appointment could not be saved, so never take the slot for it
         }
+        return availabilityIndex.holdSlot(doctorID, date, formattedTimeSlot, patientID, SLOT_HOLD_MILLIS);
+    }
 
-        // Generate and save appointment details
-        String appointmentID = generateAppointmentID();
-        saveAppointmentDetails(appointmentID, doctorID, patientID, date, timeSlot, AppointmentStatus.PENDING.name());
-        updateSlotStatus(doctorID, date, timeSlot, DoctorAvailabilityStatus.BOOKED.name());
-        return appointmentID;
+    /**
+     * Books a held slot and creates the pending appointment for it.
+     *
+     * @param hold The hold placed on the slot for the patient
+     * @return The outcome, with the ID of the new appointment if it was booked
+     */
+    @Override
+    public BookingResult confirmHold(DoctorAvailabilityIndex.SlotHold hold) {
+        if (!availabilityIndex.bookHeldSlot(hold)) {
+            return new BookingResult(BookingOutcome.HOLD_EXPIRED, null, hold.getDate(), hold.getTimeSlot());
+        }
+        try {
+            String appointmentID = generateAppointmentID();
+            saveAppointmentDetails(appointmentID, hold.getDoctorID(), hold.getHolderID(), hold.getDate(), hold.getTimeSlot(),
+                    AppointmentStatus.PENDING);
+            return new BookingResult(BookingOutcome.BOOKED, appointmentID, hold.getDate(), hold.getTimeSlot());
+        } catch (RuntimeException e) {
+            return notSaved(hold.getDoctorID(), hold.getDate(), hold.getTimeSlot(), e);
+        }
+    }
+
+    /**
+     * Releases a hold without booking its slot.
+     *
+     * @param hold The hold placed on the slot for the patient
+     */
+    @Override
+    public void releaseHold(DoctorAvailabilityIndex.SlotHold hold) {
+        availabilityIndex.releaseHold(hold);
+    }
+
+    /**
+     * Gets how long a slot stays held for a patient, set with {@code -Dhms.slotHoldMillis}.
+     *
+     * @return The hold duration in milliseconds
+     */
+    @Override
+    public long getSlotHoldMillis() {
+        return SLOT_HOLD_MILLIS;
     }
 
     /**
@@ -84,19 +202,8 @@ public class AppointmentService extends DoctorAvailabilityService implements App
      * @param doctorID The unique ID of the doctor
      * @return true if the doctor has available slots; false otherwise
      */
-    private boolean hasAvailableSlots(String doctorID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(DOCTOR_AVAILABILITY_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(doctorID) && fields[4].equalsIgnoreCase(DoctorAvailabilityStatus.AVAILABLE.name())) {
-                    return true; // Doctor has at least one available slot
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading DoctorAvailability.csv: " + e.getMessage());
-        }
-        return false; // All slots are booked
+    public boolean hasAvailableSlots(String doctorID) {
+        return availabilityIndex.hasAvailableSlots(doctorID);
     }
 
     /**
@@ -107,20 +214,7 @@ public class AppointmentService extends DoctorAvailabilityService implements App
      * @return true if the doctor is available on the date; false otherwise
      */
     public boolean isDoctorAvailableOnDate(String doctorID, String date) {
-        boolean hasAvailableSlots = false;
-        try (BufferedReader reader = new BufferedReader(new FileReader(DOCTOR_AVAILABILITY_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(doctorID) && fields[2].equals(date) && fields[4].equalsIgnoreCase(DoctorAvailabilityStatus.AVAILABLE.name())) {
-                    hasAvailableSlots = true;
-                    break;
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading DoctorAvailability.csv: " + e.getMessage());
-        }
-        return hasAvailableSlots;
+        return availabilityIndex.isAvailableOnDate(doctorID, date);
     }
 
     /**
@@ -132,11 +226,9 @@ public class AppointmentService extends DoctorAvailabilityService implements App
     public boolean isValidDoctorID(String doctorID) {
         // Check if doctor ID exists in User.csv
         boolean doctorExistsInUser = false;
-        try (BufferedReader reader = new BufferedReader(new FileReader(USER_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(doctorID) && fields[2].equalsIgnoreCase(UserRole.DOCTOR.name())) {
+        try (CsvTokenizer reader = CsvTokenizer.open(USER_FILE)) {
+            while (reader.nextRow()) {
+                if (reader.fieldEquals(0, doctorID) && reader.fieldEqualsIgnoreCase(2, UserRole.DOCTOR.name())) {
                     doctorExistsInUser = true;
                     break;
                 }
@@ -157,24 +249,37 @@ public class AppointmentService extends DoctorAvailabilityService implements App
     }
 
     /**
-     * Checks if a given doctor ID exists in the DoctorAvailability.csv file.
+     * Checks if a given doctor ID has published any availability.
      *
      * @param doctorID The unique ID of the doctor to check
-     * @return true if the doctor ID exists in the availability file; false otherwise
+     * @return true if the doctor ID exists in the availability index; false otherwise
      */
     private boolean isDoctorInAvailability(String doctorID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(DOCTOR_AVAILABILITY_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(doctorID)) {
-                    return true;
+        return availabilityIndex.hasDoctor(doctorID);
+    }
+
+    /**
+     * Reads the role of every user in User.csv.
+     *
+     * @return The {@link UserRole} ordinal of each user, keyed by {@link EntityId}
+     */
+    private IntIntMap loadUserRoles() {
+        IntIntMap userRoles = new IntIntMap();
+        try (CsvTokenizer reader = CsvTokenizer.open(USER_FILE)) {
+            reader.nextRow(); // Skip header line
+            while (reader.nextRow()) {
+                int userID = EntityId.encode(reader.field(0));
+                for (UserRole role : UserRole.values()) {
+                    if (userID != EntityId.NONE && reader.fieldEqualsIgnoreCase(2, role.name())) {
+                        userRoles.put(userID, role.ordinal());
+                        break;
+                    }
                 }
             }
         } catch (IOException e) {
-            System.err.println("Error reading DoctorAvailability.csv: " + e.getMessage());
+            System.err.println("Error reading User.csv: " + e.getMessage());
         }
-        return false;
+        return userRoles;
     }
 
     /**
@@ -184,62 +289,43 @@ public class AppointmentService extends DoctorAvailabilityService implements App
      * @return true if the date format is valid; false otherwise
      */
     public boolean isValidDateFormat(String date) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yy");
-        dateFormat.setLenient(false);
-        try {
-            dateFormat.parse(date);
-            return true;
-        } catch (ParseException e) {
-            return false;
-        }
+        return Dates.isValid(date);
     }
 
     /**
-     * Validates whether a given time slot is in the correct HH:MM-HH:MM format.
+     * Generates a unique appointment ID from the persisted appointment ID sequence.
      *
-     * @param timeSlot The time slot string to be validated
-     * @return true if the time slot matches the HH:MM-HH:MM format; false otherwise
+     * @return A unique appointment ID
      */
-    private boolean isValidTimeSlotFormat(String timeSlot) {
-        String timeSlotPattern = "^\\d{2}:\\d{2}-\\d{2}:\\d{2}$";
-        return Pattern.matches(timeSlotPattern, timeSlot);
+    private String generateAppointmentID() {
+        return APPOINTMENT_ID_PREFIX + appointmentIDs().next();
     }
 
     /**
-     * Checks if the time slot is available for a specific doctor on a given date.
+     * Opens the persisted appointment ID sequence.
      *
-     * @param doctorID The unique ID of the doctor
-     * @param date     The date to check
-     * @param timeSlot The time slot to check
-     * @return true if the time slot is available; false otherwise
+     * @return The allocator of appointment numbers
      */
-    private boolean isAvailableSlot(String doctorID, String date, String timeSlot) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(DOCTOR_AVAILABILITY_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data[0].equals(doctorID) && data[2].equals(date) && data[3].equals(timeSlot) && data[4].equalsIgnoreCase(DoctorAvailabilityStatus.AVAILABLE.name())) {
-                    return true;
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading DoctorAvailability.csv: " + e.getMessage());
-        }
-        return false;
+    private IdAllocator appointmentIDs() {
+        return IdAllocator.open(APPOINTMENT_ID_SEQUENCE, APPOINTMENT_ID_BLOCK, this::firstFreeAppointmentNumber);
     }
 
     /**
-     * Generates a unique appointment ID.
+     * Finds the smallest appointment number above every existing appointment ID,
+     * so a missing sequence file never causes an existing ID to be reused.
      *
-     * @return A unique appointment ID
+     * @return The first appointment number that may be allocated
      */
-    private String generateAppointmentID() {
-        Random random = new Random();
-        return "AP" + (random.nextInt(900) + 100);
+    private long firstFreeAppointmentNumber() {
+        long first = FIRST_APPOINTMENT_NUMBER;
+        for (Appointment appointment : appointmentRepository.findAll()) {
+            first = Math.max(first, IdAllocator.parseNumber(appointment.getAppointmentID(), APPOINTMENT_ID_PREFIX) + 1);
+        }
+        return first;
     }
 
     /**
-     * Saves appointment details to the Appointment.csv file.
+     * Saves appointment details to the shared appointment repository.
      *
      * @param appointmentID The unique ID of the appointment
      * @param doctorID      The unique ID of the doctor
@@ -248,136 +334,155 @@ public class AppointmentService extends DoctorAvailabilityService implements App
      * @param timeSlot      The time slot of the appointment
      * @param status        The status of the appointment
      */
-    private void saveAppointmentDetails(String appointmentID, String doctorID, String patientID, String date, String timeSlot, String status) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(APPOINTMENT_FILE, true))) {
-            String line = String.join(",", appointmentID, doctorID, patientID, date, timeSlot, status);
-            writer.write(line);
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("Error saving appointment: " + e.getMessage());
-        }
+    private void saveAppointmentDetails(String appointmentID, String doctorID, String patientID, String date, String timeSlot, AppointmentStatus status) {
+        appointmentRepository.add(appointmentID, doctorID, patientID, date, timeSlot, status);
     }
 
     /**
-     * Retrieves the name of a doctor based on their unique ID from the User.csv file.
+     * Moves an appointment to another available slot of the same doctor. The new slot is claimed
+     * with a compare-and-set on its version before the appointment is changed, and the old slot
+     * is freed once the appointment has moved.
      *
-     * @param doctorID The unique ID of the doctor
-     * @return The name of the doctor if found; "Unknown Doctor" otherwise
+     * @param appointmentID The unique ID of the appointment to reschedule
+     * @param newDate       The new date in DD-MM-YY format
+     * @param newTimeSlot   The new start time in HH:MM format, or the whole slot in HH:MM-HH:MM format
+     * @return The outcome of the request
      */
-    private String getDoctorNameByID(String doctorID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(USER_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(doctorID) && fields[2].equalsIgnoreCase(UserRole.DOCTOR.name())) {
-                    return fields[3];
-                }
+    @Override
+    public BookingResult rescheduleAppointment(String appointmentID, String newDate, String newTimeSlot) {
+        String formattedTimeSlot = toHalfHourSlot(newTimeSlot);
+        String timeSlot = formattedTimeSlot == null ? newTimeSlot : formattedTimeSlot;
+        Appointment appointment = appointmentRepository.findById(appointmentID);
+        if (appointment == null) {
+            return new BookingResult(BookingOutcome.APPOINTMENT_NOT_FOUND, null, newDate, timeSlot);
+        }
+        if (isClosed(appointment)) {
+            return new BookingResult(BookingOutcome.APPOINTMENT_CLOSED, appointmentID, newDate, timeSlot);
+        }
+        if (!isValidDateFormat(newDate)) {
+            return new BookingResult(BookingOutcome.INVALID_DATE, appointmentID, newDate, timeSlot);
+        }
+        if (formattedTimeSlot == null) {
+            return new BookingResult(BookingOutcome.INVALID_TIME_SLOT, appointmentID, newDate, timeSlot);
+        }
+
+        String doctorID = appointment.getDoctorID();
+        // Save the old date and time slot before updating
+        String oldDate = appointment.getDate();
+        String oldTimeSlot = appointment.getTimeSlot();
+        int oldEpochDay = appointment.getEpochDay();
+        int oldSlotOrdinal = appointment.getTimeSlotOrdinal();
+
+        // Claim the new slot first, so only the final commit contends
+        int version = availabilityIndex.availableSlotVersion(doctorID, newDate, timeSlot);
+        if (version < 0) {
+            return new BookingResult(BookingOutcome.SLOT_UNAVAILABLE, appointmentID, newDate, timeSlot);
+        }
+        if (!availabilityIndex.compareAndSetStatus(doctorID, newDate, timeSlot, version, DoctorAvailabilityStatus.BOOKED.name())) {
+            return new BookingResult(BookingOutcome.SLOT_TAKEN, appointmentID, newDate, timeSlot);
+        }
+
+        Lock lock = DOCTOR_LOCKS.get(doctorID);
+        lock.lock();
+        try {
+            // The appointment may have been changed by another session in the meantime
+            Appointment current = appointmentRepository.findById(appointmentID);
+            if (current == null || current.getEpochDay() != oldEpochDay || current.getTimeSlotOrdinal() != oldSlotOrdinal || isClosed(current)) {
+                updateSlotStatus(doctorID, newDate, timeSlot, DoctorAvailabilityStatus.AVAILABLE.name());
+                return new BookingResult(BookingOutcome.APPOINTMENT_CHANGED, appointmentID, newDate, timeSlot);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            appointmentRepository.reschedule(appointmentID, newDate, timeSlot, AppointmentStatus.PENDING);
+            updateSlotStatus(doctorID, oldDate, oldTimeSlot, DoctorAvailabilityStatus.AVAILABLE.name());
+        } finally {
+            lock.unlock();
         }
-        return "Unknown Doctor";
+        return new BookingResult(BookingOutcome.RESCHEDULED, appointmentID, newDate, timeSlot);
+    }
+
+    private static boolean isClosed(Appointment appointment) {
+        return appointment.hasStatus(AppointmentStatus.CANCELLED) || appointment.hasStatus(AppointmentStatus.COMPLETED);
     }
 
     /**
-     * Loads all appointments from the Appointment.csv file into a list.
-     * Each appointment is represented as a string array where each element corresponds to a column in the file.
+     * Accepts a pending appointment request and sets its status to confirmed.
      *
-     * @return A list of string arrays representing the appointments
+     * @param pending The appointment as it was shown to the doctor
+     * @return true if the appointment is now confirmed; false if it was changed in the meantime
      */
-    private List<String[]> loadAppointments() {
-        List<String[]> appointments = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                appointments.add(line.split(","));
+    @Override
+    public boolean acceptAppointment(Appointment pending) {
+        Lock lock = DOCTOR_LOCKS.get(pending.getDoctorID());
+        lock.lock();
+        try {
+            if (!isStillPending(pending)) {
+                return false;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            appointmentRepository.updateStatus(pending.getAppointmentID(), AppointmentStatus.CONFIRMED);
+            return true;
+        } finally {
+            lock.unlock();
         }
-        return appointments;
     }
 
     /**
-     * Saves a list of appointment records back to the Appointment.csv file.
-     * Each appointment is represented as a string array where each element corresponds to a column in the file.
+     * Declines a pending appointment request, sets its status to cancelled and updates the slot to be available.
      *
-     * @param appointments The list of updated appointment records to be saved
+     * @param pending The appointment as it was shown to the doctor
+     * @return true if the appointment is now cancelled; false if it was changed in the meantime
      */
-    private void saveAppointments(List<String[]> appointments) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(APPOINTMENT_FILE))) {
-            for (String[] appointment : appointments) {
-                writer.write(String.join(",", appointment));
-                writer.newLine();
+    @Override
+    public boolean declineAppointment(Appointment pending) {
+        Lock lock = DOCTOR_LOCKS.get(pending.getDoctorID());
+        lock.lock();
+        try {
+            if (!isStillPending(pending)) {
+                return false;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            appointmentRepository.updateStatus(pending.getAppointmentID(), AppointmentStatus.CANCELLED);
+            updateSlotStatus(pending.getDoctorID(), pending.getDate(), pending.getTimeSlot(), DoctorAvailabilityStatus.AVAILABLE.name());
+            return true;
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Reschedules an appointment, allowing the patient to select a new date and time slot.
+     * Marks a confirmed appointment as completed. The status is re-checked under the doctor's lock,
+     * so a cancellation, reschedule or decline that got there first is never overwritten.
      *
-     * @param appointmentID The unique ID of the appointment to reschedule
+     * @param appointmentID The unique ID of the appointment
+     * @return true if the appointment is now completed; false if it is unknown or no longer confirmed
      */
     @Override
-    public void rescheduleAppointment(String appointmentID) {
-        List<String[]> appointments = loadAppointments();
-        boolean valid = false;
-        Scanner scanner = new Scanner(System.in);
-
-        for (String[] appointment : appointments) {
-            if (appointment[0].equals(appointmentID)) {
-                String doctorID = appointment[1];
-                // Save the old date and time slot before updating
-                String oldDate = appointment[3];
-                String oldTimeSlot = appointment[4];
-
-                // Step 1: Validate New Date and Check Availability
-                String newDate;
-                while (true) {
-                    System.out.print("Enter the new date (e.g., DD-MM-YY): ");
-                    newDate = scanner.nextLine();
-                    if (isValidDateFormat(newDate) && isDoctorAvailableOnDate(doctorID, newDate)) {
-                        break;
-                    } else if (!isValidDateFormat(newDate)) {
-                        System.out.println("Invalid date format. Please use DD-MM-YY.");
-                    } else {
-                        System.out.println("The doctor is not available on this date. Please choose another date.");
-                    }
-                }
-
-                // Step 2: Validate New Time Slot
-                String newTimeSlot;
-                while (true) {
-                    System.out.print("Enter the new time slot (e.g., 09:00): ");
-                    newTimeSlot = scanner.nextLine();
-                    newTimeSlot = formatToHalfHourSlot(newTimeSlot);
-                    if (isValidTimeSlotFormat(newTimeSlot) && isAvailableSlot(doctorID, newDate, newTimeSlot)) {
-                        break;
-                    } else {
-                        System.out.println("Invalid time slot or unavailable. Please check available slots for this doctor.");
-                    }
-                }
-
-                String doctorName = getDoctorNameByID(doctorID);
-                updateDoctorAvailability(doctorID, doctorName, appointment[3], appointment[4], true);
-                appointment[3] = newDate;
-                appointment[4] = newTimeSlot;
-                appointment[5] = AppointmentStatus.PENDING.name();
-                updateDoctorAvailability(doctorID, doctorName, newDate, newTimeSlot, false);
-                valid = true;
-                rescheduleSlotStatus(doctorID, oldDate, oldTimeSlot, newDate, newTimeSlot);
-                break;
+    public boolean completeAppointment(String appointmentID) {
+        Appointment appointment = appointmentRepository.findById(appointmentID);
+        if (appointment == null) {
+            return false;
+        }
+        Lock lock = DOCTOR_LOCKS.get(appointment.getDoctorID());
+        lock.lock();
+        try {
+            Appointment current = appointmentRepository.findById(appointmentID);
+            if (current == null || !current.hasStatus(AppointmentStatus.CONFIRMED)) {
+                return false;
             }
+            appointmentRepository.updateStatus(appointmentID, AppointmentStatus.COMPLETED);
+            return true;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        if (valid) {
-            saveAppointments(appointments);
-            System.out.println("Appointment rescheduled successfully.");
-        } else {
-            System.out.println("Appointment ID not found.");
-        }
+    /**
+     * Re-reads an appointment under its doctor's lock and checks that it is still pending with the
+     * same doctor, date and time slot, so it was not cancelled or rescheduled by another session.
+     */
+    private boolean isStillPending(Appointment pending) {
+        Appointment current = appointmentRepository.findById(pending.getAppointmentID());
+        return current != null && current.hasStatus(AppointmentStatus.PENDING)
+                && current.getDoctorID().equals(pending.getDoctorID())
+                && current.getEpochDay() == pending.getEpochDay()
+                && current.getTimeSlotOrdinal() == pending.getTimeSlotOrdinal();
     }
 
     /**
@@ -387,27 +492,29 @@ public class AppointmentService extends DoctorAvailabilityService implements App
      */
     @Override
     public void cancelAppointment(String appointmentID) {
-        List<String[]> appointments = loadAppointments();
-        boolean appointmentFound = false;
-
-        for (String[] appointment : appointments) {
-            if (appointment[0].equals(appointmentID)) {
-                String doctorID = appointment[1];
-                String date = appointment[3];
-                String timeSlot = appointment[4];
+        Appointment appointment = appointmentRepository.findById(appointmentID);
+
+        if (appointment != null) {
+            String doctorID = appointment.getDoctorID();
+            Lock lock = DOCTOR_LOCKS.get(doctorID);
+            lock.lock();
+            try {
+                // Re-read under the lock so a concurrent cancellation cannot release a slot twice
+                appointment = appointmentRepository.findById(appointmentID);
+                if (appointment.hasStatus(AppointmentStatus.CANCELLED)) {
+                    System.out.println("Appointment is already canceled.");
+                    return;
+                }
+                String date = appointment.getDate();
+                String timeSlot = appointment.getTimeSlot();
 
                 // Update the appointment status to canceled
-                appointment[5] = AppointmentStatus.CANCELLED.name();
-                appointmentFound = true;
+                appointmentRepository.updateStatus(appointmentID, AppointmentStatus.CANCELLED);
                 updateSlotStatus(doctorID, date, timeSlot, DoctorAvailabilityStatus.AVAILABLE.name());
-
-                break;
+                System.out.println("Appointment canceled successfully.");
+            } finally {
+                lock.unlock();
             }
-        }
-
-        if (appointmentFound) {
-            saveAppointments(appointments);
-            System.out.println("Appointment canceled successfully.");
         } else {
             System.out.println("Appointment ID not found.");
         }
@@ -421,107 +528,52 @@ public class AppointmentService extends DoctorAvailabilityService implements App
      */
     @Override
     public String viewAppointmentStatus(String appointmentID) {
-        List<String[]> appointments = loadAppointments();
-        for (String[] appointment : appointments) {
-            if (appointment[0].equals(appointmentID)) {
-                return appointment[5];
-            }
+        Appointment appointment = appointmentRepository.findById(appointmentID);
+        if (appointment != null) {
+            return appointment.getStatus().name();
         }
         return "Appointment not found.";
     }
 
     /**
-     * Updates the status of a specific slot in the DoctorAvailability.csv file.
+     * Finds the earliest free appointment slots from a date onward.
      *
-     * @param doctorID    The unique ID of the doctor
-     * @param date        The date of the slot
-     * @param timeSlot    The time slot to update
-     * @param newStatus   The new status to set (e.g., "Available" or "Booked")
+     * @param fromDate  The first date to consider, in DD-MM-YY format
+     * @param count     The maximum number of slots to return
+     * @param doctorIDs The doctors to consider, or null or empty for all doctors
+     * @return Up to {@code count} free slots ordered by date and time
      */
-    public void updateSlotStatus(String doctorID, String date, String timeSlot, String newStatus) {
-        List<String[]> availabilityData = loadDoctorAvailability();
-        boolean slotUpdated = false;
-
-        for (String[] entry : availabilityData) {
-            if (entry[0].equals(doctorID) && entry[2].equals(date) && entry[3].equals(timeSlot)) {
-                entry[4] = newStatus; // Update status to either "available" or "booked"
-                slotUpdated = true;
-                break;
-            }
-        }
-
-        if (slotUpdated) {
-            saveDoctorAvailability(availabilityData);
-        } else {
-            System.out.println("Slot not found in DoctorAvailability.csv.");
-        }
+    @Override
+    public List<AvailableSlot> findEarliestAvailableSlots(String fromDate, int count, Collection<String> doctorIDs) {
+        return availabilityIndex.findEarliestAvailableSlots(doctorIDs, fromDate, count);
     }
 
     /**
-     * Reschedules the status of old and new time slots during an appointment rescheduling.
+     * Updates the status of a specific slot in the availability index and DoctorAvailability.csv.
      *
      * @param doctorID    The unique ID of the doctor
-     * @param oldDate     The original date of the slot
-     * @param oldTimeSlot The original time slot
-     * @param newDate     The new date of the slot
-     * @param newTimeSlot The new time slot
-     */
-    private void rescheduleSlotStatus(String doctorID, String oldDate, String oldTimeSlot, String newDate, String newTimeSlot) {
-        List<String[]> availabilityData = loadDoctorAvailability();
-        boolean oldSlotUpdated = false;
-        boolean newSlotUpdated = false;
-
-        for (String[] entry : availabilityData) {
-            if (entry[0].equals(doctorID) && entry[2].equals(oldDate) && entry[3].equals(oldTimeSlot)) {
-                entry[4] = "available"; // Set the old slot to "available"
-                oldSlotUpdated = true;
-            }
-            if (entry[0].equals(doctorID) && entry[2].equals(newDate) && entry[3].equals(newTimeSlot)) {
-                entry[4] = DoctorAvailabilityStatus.BOOKED.name(); // Set the new slot to "unavailable"
-                newSlotUpdated = true;
-            }
-        }
-
-        if (oldSlotUpdated && newSlotUpdated) {
-            saveDoctorAvailability(availabilityData);
-        } else {
-            //System.out.println("One or both slots not found in DoctorAvailability.csv.");
-        }
-    }
-
-    /**
-     * Loads all availability records from DoctorAvailability.csv.
-     *
-     * @return A list of string arrays representing the availability records
+     * @param date        The date of the slot
+     * @param timeSlot    The time slot to update
+     * @param newStatus   The new status to set (e.g., "Available" or "Booked")
      */
-    private List<String[]> loadDoctorAvailability() {
-        List<String[]> availabilityData = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(DOCTOR_AVAILABILITY_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                availabilityData.add(line.split(","));
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading DoctorAvailability.csv: " + e.getMessage());
+    public void updateSlotStatus(String doctorID, String date, String timeSlot, String newStatus) {
+        if (!availabilityIndex.updateStatus(doctorID, date, timeSlot, newStatus)) {
+            System.out.println("Slot not found in DoctorAvailability.csv, or it is held by a patient.");
         }
-        return availabilityData;
     }
 
     /**
-     * Saves updated availability records back to DoctorAvailability.csv.
+     * Converts a requested time into a half-hour slot.
      *
-     * @param availabilityData The updated availability records
+     * @param time The start time in HH:MM format, or the whole slot in HH:MM-HH:MM format
+     * @return The slot in HH:MM-HH:MM format, or null if it is not a valid half-hour slot
      */
-    private void saveDoctorAvailability(List<String[]> availabilityData) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DOCTOR_AVAILABILITY_FILE))) {
-            for (String[] entry : availabilityData) {
-                writer.write(String.join(",", entry));
-                writer.newLine();
-            }
-            //System.out.println("Doctor availability saved successfully."); // Debugging output
-        } catch (IOException e) {
-            System.err.println("Error saving DoctorAvailability.csv: " + e.getMessage());
+    private String toHalfHourSlot(String time) {
+        if (time == null) {
+            return null;
         }
+        String timeSlot = time.indexOf('-') >= 0 ? time.trim() : formatToHalfHourSlot(time.trim());
+        return TimeSlots.toOrdinal(timeSlot) >= 0 ? timeSlot : null;
     }
 
     /**
@@ -548,7 +600,6 @@ public class AppointmentService extends DoctorAvailabilityService implements App
             return start + "-" + end;
 
         } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
-            //System.out.println("Invalid time format. Please enter time in HH:MM format.");
             return ""; // Return an empty string to indicate invalid format
         }
     }
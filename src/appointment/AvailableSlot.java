@@ -0,0 +1,68 @@
+package appointment;
+
+/**
+ * The AvailableSlot class describes one free appointment slot of a doctor, as returned by
+ * {@link AppointmentManager#findEarliestAvailableSlots}.
+ */
+public final class AvailableSlot {
+    private final String doctorID;
+    private final String doctorName;
+    private final String date;
+    private final String timeSlot;
+
+    /**
+     * Constructs an AvailableSlot.
+     *
+     * @param doctorID   The unique ID of the doctor
+     * @param doctorName The name of the doctor
+     * @param date       The date of the slot in DD-MM-YY format
+     * @param timeSlot   The time slot in HH:MM-HH:MM format
+     */
+    public AvailableSlot(String doctorID, String doctorName, String date, String timeSlot) {
+        this.doctorID = doctorID;
+        this.doctorName = doctorName;
+        this.date = date;
+        this.timeSlot = timeSlot;
+    }
+
+    /**
+     * Gets the unique ID of the doctor.
+     *
+     * @return The unique ID of the doctor
+     */
+    public String getDoctorID() {
+        return doctorID;
+    }
+
+    /**
+     * Gets the name of the doctor.
+     *
+     * @return The name of the doctor
+     */
+    public String getDoctorName() {
+        return doctorName;
+    }
+
+    /**
+     * Gets the date of the slot.
+     *
+     * @return The date of the slot
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the time slot.
+     *
+     * @return The time slot
+     */
+    public String getTimeSlot() {
+        return timeSlot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Doctor: %s (%s), Date: %s, Time Slot: %s", doctorName, doctorID, date, timeSlot);
+    }
+}
@@ -0,0 +1,68 @@
+package appointment;
+
+/**
+ * The BookingRequest class describes one appointment to book without any console interaction,
+ * as accepted by {@link AppointmentManager#scheduleAll}.
+ */
+public final class BookingRequest {
+    private final String patientID;
+    private final String doctorID;
+    private final String date;
+    private final String timeSlot;
+
+    /**
+     * Constructs a BookingRequest.
+     *
+     * @param patientID The unique ID of the patient
+     * @param doctorID  The unique ID of the doctor
+     * @param date      The date of the appointment in DD-MM-YY format
+     * @param timeSlot  The start time in HH:MM format, or the whole slot in HH:MM-HH:MM format
+     */
+    public BookingRequest(String patientID, String doctorID, String date, String timeSlot) {
+        this.patientID = patientID;
+        this.doctorID = doctorID;
+        this.date = date;
+        this.timeSlot = timeSlot;
+    }
+
+    /**
+     * Gets the unique ID of the patient.
+     *
+     * @return The unique ID of the patient
+     */
+    public String getPatientID() {
+        return patientID;
+    }
+
+    /**
+     * Gets the unique ID of the doctor.
+     *
+     * @return The unique ID of the doctor
+     */
+    public String getDoctorID() {
+        return doctorID;
+    }
+
+    /**
+     * Gets the date of the appointment.
+     *
+     * @return The date of the appointment
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the requested time slot.
+     *
+     * @return The requested time slot
+     */
+    public String getTimeSlot() {
+        return timeSlot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Patient: %s, Doctor: %s, Date: %s, Time Slot: %s", patientID, doctorID, date, timeSlot);
+    }
+}
@@ -0,0 +1,79 @@
+package appointment;
+
+import enums.BookingOutcome;
+
+/**
+ * The BookingResult class describes the outcome of booking or rescheduling an appointment
+ * through the non-interactive methods of {@link AppointmentManager}.
+ */
+public final class BookingResult {
+    private final BookingOutcome outcome;
+    private final String appointmentID;
+    private final String date;
+    private final String timeSlot;
+
+    /**
+     * Constructs a BookingResult.
+     *
+     * @param outcome       The outcome of the request
+     * @param appointmentID The ID of the booked or rescheduled appointment, or null if none
+     * @param date          The requested date
+     * @param timeSlot      The time slot in HH:MM-HH:MM format, or the requested text if it was not a valid slot
+     */
+    public BookingResult(BookingOutcome outcome, String appointmentID, String date, String timeSlot) {
+        this.outcome = outcome;
+        this.appointmentID = appointmentID;
+        this.date = date;
+        this.timeSlot = timeSlot;
+    }
+
+    /**
+     * Gets the outcome of the request.
+     *
+     * @return The outcome of the request
+     */
+    public BookingOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Checks whether the appointment was booked or rescheduled.
+     *
+     * @return true if the request succeeded; false otherwise
+     */
+    public boolean isSuccessful() {
+        return outcome == BookingOutcome.BOOKED || outcome == BookingOutcome.RESCHEDULED;
+    }
+
+    /**
+     * Gets the ID of the booked or rescheduled appointment.
+     *
+     * @return The appointment ID, or null if the request failed before an appointment was involved
+     */
+    public String getAppointmentID() {
+        return appointmentID;
+    }
+
+    /**
+     * Gets the requested date.
+     *
+     * @return The requested date
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the time slot of the request.
+     *
+     * @return The time slot
+     */
+    public String getTimeSlot() {
+        return timeSlot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, Appointment: %s, Date: %s, Time Slot: %s", outcome, appointmentID, date, timeSlot);
+    }
+}
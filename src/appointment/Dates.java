@@ -0,0 +1,107 @@
+package appointment;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+
+/**
+ * The Dates class converts between the DD-MM-YY date strings used throughout the system (for
+ * example {@code 01-12-26}) and epoch days, the number of days since 01-01-1970. Epoch days
+ * order chronologically, so dates kept as epoch days can be compared, sorted and scanned by
+ * range as plain ints. Two-digit years are read as 2000 to 2099.
+ *
+ * <p>This is the single date parser of the system; it is thread-safe and allocates no formatter per call.</p>
+ */
+public final class Dates {
+    /**
+     * The DD-MM-YY format, with the two-digit year in 2000-2099 and no lenient roll-over of invalid days.
+     */
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-uu").withResolverStyle(ResolverStyle.STRICT);
+
+    /**
+     * The dates accepted when files written by earlier versions are converted: one- or two-digit
+     * day and month, and a two-digit year or a full year, as the original {@code SimpleDateFormat}
+     * accepted them (for example {@code 1-12-24} or {@code 01-12-2024}).
+     */
+    private static final DateTimeFormatter LEGACY_DATE_FORMAT = new DateTimeFormatterBuilder()
+            .appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+            .appendLiteral('-')
+            .appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE)
+            .appendLiteral('-')
+            .appendValueReduced(ChronoField.YEAR, 2, 4, 2000)
+            .toFormatter()
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    private Dates() {
+    }
+
+    /**
+     * Converts a date string into its epoch day.
+     *
+     * @param date The date in DD-MM-YY format
+     * @return The epoch day, or -1 if the string is not a valid DD-MM-YY date
+     */
+    public static int toEpochDay(String date) {
+        if (date == null) {
+            return -1;
+        }
+        try {
+            return (int) LocalDate.parse(date, DATE_FORMAT).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return -1; // Not DD-MM-YY, or not a real date such as 31-04-26 or 29-02-27
+        }
+    }
+
+    /**
+     * Converts a date string from a file written by an earlier version into its epoch day, accepting
+     * the forms the original date check accepted. Only dates that {@link #toDate} can write back are
+     * accepted, so a converted file always reads back to the same dates.
+     *
+     * @param date The date, for example 01-12-24, 1-12-24 or 01-12-2024
+     * @return The epoch day, or -1 if the string is not a valid date in 2000-2099
+     */
+    public static int legacyToEpochDay(String date) {
+        if (date == null) {
+            return -1;
+        }
+        try {
+            LocalDate parsed = LocalDate.parse(date.trim(), LEGACY_DATE_FORMAT);
+            return parsed.getYear() >= 2000 && parsed.getYear() <= 2099 ? (int) parsed.toEpochDay() : -1;
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Converts an epoch day into its date string.
+     *
+     * @param epochDay The epoch day of a date in 2000-2099
+     * @return The date in DD-MM-YY format
+     */
+    public static String toDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).format(DATE_FORMAT);
+    }
+
+    /**
+     * Checks whether a string is a valid DD-MM-YY date.
+     *
+     * @param date The date to check
+     * @return true if the date is valid; false otherwise
+     */
+    public static boolean isValid(String date) {
+        return toEpochDay(date) >= 0;
+    }
+
+    /**
+     * Gets today's date as an epoch day, for "upcoming" filters.
+     *
+     * @return Today's epoch day in the system time zone
+     */
+    public static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+}
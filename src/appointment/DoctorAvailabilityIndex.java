@@ -0,0 +1,725 @@
+package appointment;
+
+import enums.DoctorAvailabilityStatus;
+import storage.AppendOnlyJournal;
+import storage.HashedTimerWheel;
+import java.io.*;
+import java.util.*;
+
+/**
+ * The DoctorAvailabilityIndex class keeps the availability from DoctorAvailability.csv in memory
+ * as one calendar per doctor, with its days keyed by {@link Dates} epoch day. Each doctor-day is
+ * a pair of bitmasks over the 48 half-hour slots of the day (see {@link TimeSlots}): one marks
+ * the published slots and one the booked slots.
+ * Checking, counting, finding and booking slots are single bit operations, and a cached count
+ * of available slots per doctor answers {@link #hasAvailableSlots} without iterating.
+ * It is the only writer of DoctorAvailability.csv so the index and the file never disagree.
+ *
+ * <p>DoctorAvailability.csv stores one row per doctor-day with both masks in hexadecimal.
+ * Files in the older one-row-per-slot format are read and rewritten in the new format on
+ * startup.</p>
+ *
+ * <p>Every free slot is also kept in time order, both across all doctors and per doctor, and
+ * these ordered sets are updated with each booking and cancellation. They answer
+ * {@link #findEarliestAvailableSlots} without looking at booked or past slots.</p>
+ *
+ * <p>Every slot carries a version that changes whenever the slot becomes free or taken. A
+ * booking session reads the version while the patient chooses a slot and commits with
+ * {@link #compareAndSetStatus}, which fails if anyone else changed the slot in between.
+ * No lock is held while the patient is answering prompts. A day's version counters are only
+ * allocated once a version of that day is read, so loading the file and booking without
+ * versions keep each day down to its masks.</p>
+ *
+ * <p>A session can also place a short hold on a slot with {@link #holdSlot} while the patient
+ * confirms it. A held slot is not free to anyone else until the hold is booked, released or
+ * expires. Holds live in memory only and expire through a hashed timer wheel, so they cost one
+ * bit and one small timeout each and never touch DoctorAvailability.csv or its journal.</p>
+ *
+ * <p>Published slots and status changes are appended to a journal rather than rewriting
+ * DoctorAvailability.csv, so the cost of a booking does not grow with the number of published
+ * slots. The journal is folded into the index on startup and compacted into the CSV file in
+ * the background.</p>
+ */
+public final class DoctorAvailabilityIndex {
+    private static final String DOCTOR_AVAILABILITY_FILE = "resources/DoctorAvailability.csv";
+    private static final String DOCTOR_AVAILABILITY_JOURNAL = "resources/DoctorAvailability.journal";
+    private static final String HEADER = "DoctorID,DoctorName,Date,PublishedMask,BookedMask";
+    private static final String LEGACY_SLOT_COLUMN = "TimeSlot";
+    private static final int JOURNAL_MAX_RECORDS = 1000;
+    private static final long JOURNAL_MAX_AGE_MS = 60_000;
+    private static final long HOLD_TICK_MS = 1000;
+    private static final int HOLD_WHEEL_SIZE = 512;
+
+    private static DoctorAvailabilityIndex instance;
+
+    /**
+     * The published, booked and held slots of one doctor on one date, one bit per half-hour slot.
+     */
+    private static final class DoctorDay {
+        private final int epochDay;
+        private long published;
+        private long booked;
+        private long held; // Memory-only holds, never persisted
+        private int[] versions; // Per-slot change counters, allocated when a version of the day is first read
+
+        private DoctorDay(int epochDay) {
+            this.epochDay = epochDay;
+        }
+
+        private String date() {
+            return Dates.toDate(epochDay);
+        }
+
+        private long free() {
+            return published & ~booked & ~held;
+        }
+
+        private int version(int ordinal) {
+            return versions == null ? 0 : versions[ordinal];
+        }
+    }
+
+    /**
+     * The days of one doctor, with a cached count of available slots across all days.
+     */
+    private static final class DoctorCalendar {
+        private final String doctorID;
+        private String doctorName;
+        private final Map<Integer, DoctorDay> days = new LinkedHashMap<>(); // Keyed by epoch day
+        private final NavigableSet<FreeSlot> freeSlots = new TreeSet<>();
+        private int available;
+
+        private DoctorCalendar(String doctorID, String doctorName) {
+            this.doctorID = doctorID;
+            this.doctorName = doctorName;
+        }
+    }
+
+    /**
+     * A free slot, ordered by date and time and then by doctor ID.
+     */
+    private static final class FreeSlot implements Comparable<FreeSlot> {
+        private final long time;
+        private final String doctorID;
+        private final DoctorCalendar calendar;
+        private final DoctorDay day;
+
+        private FreeSlot(long time, String doctorID, DoctorCalendar calendar, DoctorDay day) {
+            this.time = time;
+            this.doctorID = doctorID;
+            this.calendar = calendar;
+            this.day = day;
+        }
+
+        @Override
+        public int compareTo(FreeSlot other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : doctorID.compareTo(other.doctorID);
+        }
+
+        private AvailableSlot toAvailableSlot() {
+            int ordinal = (int) (time - (long) day.epochDay * TimeSlots.SLOTS_PER_DAY);
+            return new AvailableSlot(doctorID, calendar.doctorName, day.date(), TimeSlots.toTimeSlot(ordinal));
+        }
+    }
+
+    /**
+     * The remaining free slots of one doctor during a merge, headed by the earliest.
+     */
+    private static final class SlotCursor {
+        private final Iterator<FreeSlot> rest;
+        private FreeSlot head;
+
+        private SlotCursor(Iterator<FreeSlot> slots) {
+            this.rest = slots;
+            this.head = slots.next();
+        }
+
+        private boolean advance() {
+            head = rest.hasNext() ? rest.next() : null;
+            return head != null;
+        }
+    }
+
+    /**
+     * A temporary hold on one slot, placed by {@link #holdSlot} and ended by booking, releasing or expiry.
+     */
+    public static final class SlotHold {
+        private final DoctorCalendar calendar;
+        private final DoctorDay day;
+        private final int ordinal;
+        private final String holderID;
+        private HashedTimerWheel.Timeout expiry;
+        private boolean active = true;
+
+        private SlotHold(DoctorCalendar calendar, DoctorDay day, int ordinal, String holderID) {
+            this.calendar = calendar;
+            this.day = day;
+            this.ordinal = ordinal;
+            this.holderID = holderID;
+        }
+
+        /**
+         * Gets the unique ID of the doctor.
+         *
+         * @return The unique ID of the doctor
+         */
+        public String getDoctorID() {
+            return calendar.doctorID;
+        }
+
+        /**
+         * Gets the date of the held slot.
+         *
+         * @return The date of the slot
+         */
+        public String getDate() {
+            return day.date();
+        }
+
+        /**
+         * Gets the held time slot.
+         *
+         * @return The time slot
+         */
+        public String getTimeSlot() {
+            return TimeSlots.toTimeSlot(ordinal);
+        }
+
+        /**
+         * Gets the ID of the user holding the slot.
+         *
+         * @return The ID of the holder
+         */
+        public String getHolderID() {
+            return holderID;
+        }
+    }
+
+    private final Map<String, DoctorCalendar> doctors = new LinkedHashMap<>();
+    private final NavigableSet<FreeSlot> freeSlots = new TreeSet<>();
+    private final AppendOnlyJournal journal;
+    private final HashedTimerWheel holdTimer = new HashedTimerWheel("slot-hold-expiry", HOLD_TICK_MS, HOLD_WHEEL_SIZE);
+
+    /**
+     * Returns the shared index instance, loading DoctorAvailability.csv on first use.
+     *
+     * @return The shared DoctorAvailabilityIndex
+     */
+    public static synchronized DoctorAvailabilityIndex getInstance() {
+        if (instance == null) {
+            instance = new DoctorAvailabilityIndex();
+        }
+        return instance;
+    }
+
+    private DoctorAvailabilityIndex() {
+        journal = new AppendOnlyJournal(DOCTOR_AVAILABILITY_FILE, DOCTOR_AVAILABILITY_JOURNAL,
+                JOURNAL_MAX_RECORDS, JOURNAL_MAX_AGE_MS, this, this::snapshotLines);
+        boolean legacyFormat = load();
+        for (String[] record : journal.replay()) {
+            if (record.length >= 5) {
+                applyRecord(record);
+            }
+        }
+        if (legacyFormat) {
+            journal.rewrite();
+        }
+    }
+
+    /**
+     * Loads all availability records from DoctorAvailability.csv and builds the index.
+     *
+     * @return true if the file was in the older one-row-per-slot format
+     */
+    private boolean load() {
+        boolean legacyFormat = false;
+        try (BufferedReader reader = new BufferedReader(new FileReader(DOCTOR_AVAILABILITY_FILE))) {
+            String line = reader.readLine();
+            if (line != null) {
+                String[] header = line.split(",");
+                legacyFormat = header.length >= 4 && header[3].equalsIgnoreCase(LEGACY_SLOT_COLUMN);
+            }
+
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                boolean applied = fields.length >= 5 && applyRecord(fields);
+                if (!applied && legacyFormat && !line.isBlank()) {
+                    // The file is about to be rewritten in the day format, which would drop the row for good
+                    throw new IllegalStateException("DoctorAvailability.csv has a row that cannot be converted: " + line);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // No availability published yet; the file is created on the first write
+        } catch (IOException e) {
+            System.err.println("Error reading DoctorAvailability.csv: " + e.getMessage());
+        }
+        return legacyFormat;
+    }
+
+    /**
+     * Applies a stored record. A doctor-day record (doctorID, doctorName, date, publishedMask, bookedMask)
+     * replaces the masks of that day; a legacy slot record (doctorID, doctorName, date, timeSlot, status)
+     * publishes the slot with the recorded status. Legacy dates are read with {@link Dates#legacyToEpochDay},
+     * which accepts every form the original format allowed.
+     *
+     * @param record The record from DoctorAvailability.csv or the journal
+     * @return true if the record was applied; false if it is malformed and was skipped
+     */
+    private boolean applyRecord(String[] record) {
+        boolean legacySlot = record[3].indexOf(':') >= 0;
+        int epochDay = legacySlot ? Dates.legacyToEpochDay(record[2]) : Dates.toEpochDay(record[2]);
+        int ordinal = legacySlot ? TimeSlots.toOrdinal(record[3]) : 0;
+        if (epochDay < 0 || ordinal < 0) {
+            System.err.println("Skipping availability record for " + record[0] + " with invalid date or time slot: "
+                    + record[2] + " " + record[3]);
+            return false;
+        }
+        DoctorCalendar calendar = doctors.computeIfAbsent(record[0], id -> new DoctorCalendar(id, record[1]));
+        calendar.doctorName = record[1];
+        DoctorDay day = calendar.days.computeIfAbsent(epochDay, DoctorDay::new);
+        long freeBefore = day.free();
+
+        if (legacySlot) {
+            long bit = 1L << ordinal;
+            day.published |= bit;
+            day.booked = isAvailable(record[4]) ? day.booked & ~bit : day.booked | bit;
+        } else {
+            try {
+                day.published = Long.parseUnsignedLong(record[3], 16);
+                day.booked = Long.parseUnsignedLong(record[4], 16);
+            } catch (NumberFormatException e) {
+                System.err.println("Skipping malformed availability record for " + record[0] + " on " + record[2]);
+                return false;
+            }
+        }
+        freeChanged(calendar, day, freeBefore);
+        return true;
+    }
+
+    /**
+     * Brings the available-slot count, the slot versions and the ordered free slots in step after the masks of a day changed.
+     *
+     * @param calendar   The calendar of the doctor
+     * @param day        The day whose masks changed
+     * @param freeBefore The free-slot mask of the day before the change
+     */
+    private void freeChanged(DoctorCalendar calendar, DoctorDay day, long freeBefore) {
+        long freeAfter = day.free();
+        calendar.available += Long.bitCount(freeAfter) - Long.bitCount(freeBefore);
+
+        // Until a version of the day has been read there is no reader to tell about the change
+        if (day.versions != null) {
+            for (long changed = freeAfter ^ freeBefore; changed != 0; changed &= changed - 1) {
+                day.versions[Long.numberOfTrailingZeros(changed)]++;
+            }
+        }
+
+        for (long added = freeAfter & ~freeBefore; added != 0; added &= added - 1) {
+            FreeSlot slot = freeSlot(calendar, day, Long.numberOfTrailingZeros(added));
+            freeSlots.add(slot);
+            calendar.freeSlots.add(slot);
+        }
+        for (long removed = freeBefore & ~freeAfter; removed != 0; removed &= removed - 1) {
+            FreeSlot slot = freeSlot(calendar, day, Long.numberOfTrailingZeros(removed));
+            freeSlots.remove(slot);
+            calendar.freeSlots.remove(slot);
+        }
+    }
+
+    private static FreeSlot freeSlot(DoctorCalendar calendar, DoctorDay day, int ordinal) {
+        return new FreeSlot((long) day.epochDay * TimeSlots.SLOTS_PER_DAY + ordinal, calendar.doctorID, calendar, day);
+    }
+
+    private static boolean isAvailable(String status) {
+        return status.equalsIgnoreCase(DoctorAvailabilityStatus.AVAILABLE.name());
+    }
+
+    private DoctorDay findDay(String doctorID, String date) {
+        return findDay(doctors.get(doctorID), date);
+    }
+
+    private static DoctorDay findDay(DoctorCalendar calendar, String date) {
+        int epochDay = Dates.toEpochDay(date);
+        return calendar == null || epochDay < 0 ? null : calendar.days.get(epochDay);
+    }
+
+    private static long slotBit(String timeSlot) {
+        int ordinal = TimeSlots.toOrdinal(timeSlot);
+        return ordinal < 0 ? 0 : 1L << ordinal;
+    }
+
+    /**
+     * Checks whether the doctor has published availability for any date.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @return true if the doctor has at least one slot; false otherwise
+     */
+    public synchronized boolean hasDoctor(String doctorID) {
+        return doctors.containsKey(doctorID);
+    }
+
+    /**
+     * Checks whether the doctor has any available slot.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @return true if the doctor has at least one available slot; false otherwise
+     */
+    public synchronized boolean hasAvailableSlots(String doctorID) {
+        DoctorCalendar calendar = doctors.get(doctorID);
+        return calendar != null && calendar.available > 0;
+    }
+
+    /**
+     * Checks whether the doctor has any available slot on a date.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param date     The date to check
+     * @return true if the doctor has at least one available slot on the date; false otherwise
+     */
+    public synchronized boolean isAvailableOnDate(String doctorID, String date) {
+        DoctorDay day = findDay(doctorID, date);
+        return day != null && day.free() != 0;
+    }
+
+    /**
+     * Checks whether a specific slot is published and available.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param date     The date of the slot
+     * @param timeSlot The time slot to check
+     * @return true if the slot is available; false otherwise
+     */
+    public synchronized boolean isSlotAvailable(String doctorID, String date, String timeSlot) {
+        DoctorDay day = findDay(doctorID, date);
+        return day != null && (day.free() & slotBit(timeSlot)) != 0;
+    }
+
+    /**
+     * Counts the available slots of a doctor on a date.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param date     The date to look up
+     * @return The number of available slots
+     */
+    public synchronized int countAvailableSlots(String doctorID, String date) {
+        DoctorDay day = findDay(doctorID, date);
+        return day == null ? 0 : Long.bitCount(day.free());
+    }
+
+    /**
+     * Finds the earliest available slot of a doctor on a date.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param date     The date to look up
+     * @return The earliest available time slot, or null if none is available
+     */
+    public synchronized String findFirstAvailableSlot(String doctorID, String date) {
+        DoctorDay day = findDay(doctorID, date);
+        if (day == null || day.free() == 0) {
+            return null;
+        }
+        return TimeSlots.toTimeSlot(Long.numberOfTrailingZeros(day.free()));
+    }
+
+    /**
+     * Retrieves the available slots of a doctor on a date, ordered by time slot.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param date     The date to look up
+     * @return The matching availability records (doctorID, doctorName, date, timeSlot, status)
+     */
+    public synchronized List<String[]> findAvailableSlots(String doctorID, String date) {
+        List<String[]> result = new ArrayList<>();
+        DoctorCalendar calendar = doctors.get(doctorID);
+        DoctorDay day = findDay(calendar, date);
+        if (day == null) {
+            return result;
+        }
+        for (long free = day.free(); free != 0; free &= free - 1) {
+            String timeSlot = TimeSlots.toTimeSlot(Long.numberOfTrailingZeros(free));
+            result.add(new String[]{doctorID, calendar.doctorName, date, timeSlot, DoctorAvailabilityStatus.AVAILABLE.name()});
+        }
+        return result;
+    }
+
+    /**
+     * Finds the earliest free slots from a date onward, across all doctors or a chosen set of doctors.
+     * For a chosen set, the ordered free slots of each doctor are merged through a priority queue.
+     *
+     * @param doctorIDs The doctors to consider, or null or empty for all doctors
+     * @param fromDate  The first date to consider, in DD-MM-YY format
+     * @param limit     The maximum number of slots to return
+     * @return Up to {@code limit} free slots ordered by date and time, then by doctor ID
+     */
+    public synchronized List<AvailableSlot> findEarliestAvailableSlots(Collection<String> doctorIDs, String fromDate, int limit) {
+        List<AvailableSlot> result = new ArrayList<>();
+        int fromEpochDay = Dates.toEpochDay(fromDate);
+        if (fromEpochDay < 0 || limit <= 0) {
+            return result;
+        }
+        FreeSlot from = new FreeSlot((long) fromEpochDay * TimeSlots.SLOTS_PER_DAY, "", null, null);
+
+        if (doctorIDs == null || doctorIDs.isEmpty()) {
+            for (FreeSlot slot : freeSlots.tailSet(from, true)) {
+                if (result.size() == limit) {
+                    break;
+                }
+                result.add(slot.toAvailableSlot());
+            }
+            return result;
+        }
+
+        PriorityQueue<SlotCursor> cursors = new PriorityQueue<>(Comparator.comparing((SlotCursor cursor) -> cursor.head));
+        for (String doctorID : new HashSet<>(doctorIDs)) {
+            DoctorCalendar calendar = doctors.get(doctorID);
+            if (calendar != null) {
+                Iterator<FreeSlot> slots = calendar.freeSlots.tailSet(from, true).iterator();
+                if (slots.hasNext()) {
+                    cursors.add(new SlotCursor(slots));
+                }
+            }
+        }
+        while (result.size() < limit && !cursors.isEmpty()) {
+            SlotCursor cursor = cursors.poll();
+            result.add(cursor.head.toAvailableSlot());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Publishes available slots for a doctor on a date and records the day in the journal.
+     * Slots that are already published for that doctor and date are left unchanged.
+     *
+     * @param doctorID   The unique ID of the doctor
+     * @param doctorName The name of the doctor
+     * @param date       The date of the slots
+     * @param timeSlots  The time slots to publish
+     */
+    public synchronized void addSlots(String doctorID, String doctorName, String date, String[] timeSlots) {
+        int epochDay = Dates.toEpochDay(date);
+        if (epochDay < 0) {
+            System.out.println("Skipping invalid date: " + date);
+            return;
+        }
+        long added = 0;
+        for (String timeSlot : timeSlots) {
+            long bit = slotBit(timeSlot);
+            if (bit == 0) {
+                System.out.println("Skipping invalid time slot: " + timeSlot);
+            }
+            added |= bit;
+        }
+        if (added == 0) {
+            return;
+        }
+
+        DoctorCalendar calendar = doctors.computeIfAbsent(doctorID, id -> new DoctorCalendar(id, doctorName));
+        DoctorDay day = calendar.days.computeIfAbsent(epochDay, DoctorDay::new);
+        added &= ~day.published;
+        if (added != 0) {
+            long freeBefore = day.free();
+            day.published |= added;
+            freeChanged(calendar, day, freeBefore);
+            journal.append(dayRecord(calendar, day));
+        }
+    }
+
+    /**
+     * Sets the status of a published slot and records the day in the journal.
+     * A held slot is left unchanged; only its holder can book or release it.
+     *
+     * @param doctorID  The unique ID of the doctor
+     * @param date      The date of the slot
+     * @param timeSlot  The time slot to update
+     * @param newStatus The new status of the slot
+     * @return true if the slot was found and updated; false if it is unknown or held
+     */
+    public synchronized boolean updateStatus(String doctorID, String date, String timeSlot, String newStatus) {
+        return compareAndSetStatus(doctorID, date, timeSlot, -1, newStatus);
+    }
+
+    /**
+     * Returns the version of a slot if it is available.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param date     The date of the slot
+     * @param timeSlot The time slot to check
+     * @return The current version of the slot, or -1 if the slot is not available
+     */
+    public synchronized int availableSlotVersion(String doctorID, String date, String timeSlot) {
+        DoctorDay day = findDay(doctorID, date);
+        int ordinal = TimeSlots.toOrdinal(timeSlot);
+        if (day == null || ordinal < 0 || (day.free() & (1L << ordinal)) == 0) {
+            return -1;
+        }
+        if (day.versions == null) {
+            day.versions = new int[TimeSlots.SLOTS_PER_DAY]; // From now on every change of the day is counted
+        }
+        return day.version(ordinal);
+    }
+
+    /**
+     * Sets the status of a published slot only if the slot has not changed since its version was read,
+     * and records the day in the journal. Booking with the version read while the slot was available
+     * therefore moves it from AVAILABLE@v to BOOKED@v+1, or fails if anyone else took it first.
+     * A held slot is never changed here: its holder books it with {@link #bookHeldSlot} or frees it
+     * with {@link #releaseHold}.
+     *
+     * @param doctorID        The unique ID of the doctor
+     * @param date            The date of the slot
+     * @param timeSlot        The time slot to update
+     * @param expectedVersion The version read earlier, or -1 to skip the version check
+     * @param newStatus       The new status of the slot
+     * @return true if the slot was found and updated; false if it is unknown, held or its version changed
+     */
+    public synchronized boolean compareAndSetStatus(String doctorID, String date, String timeSlot, int expectedVersion, String newStatus) {
+        DoctorCalendar calendar = doctors.get(doctorID);
+        DoctorDay day = findDay(calendar, date);
+        int ordinal = TimeSlots.toOrdinal(timeSlot);
+        if (day == null || ordinal < 0 || (day.published & (1L << ordinal)) == 0 || (day.held & (1L << ordinal)) != 0) {
+            return false;
+        }
+        if (expectedVersion >= 0 && day.version(ordinal) != expectedVersion) {
+            return false;
+        }
+
+        long bit = 1L << ordinal;
+        long freeBefore = day.free();
+        day.booked = isAvailable(newStatus) ? day.booked & ~bit : day.booked | bit;
+        freeChanged(calendar, day, freeBefore);
+        journal.append(dayRecord(calendar, day));
+        return true;
+    }
+
+    /**
+     * Books a batch of slots in one pass under a single lock. A slot is booked only if it is
+     * available when its turn comes, so two requests for the same slot in one batch book it once.
+     * Each changed doctor-day is written to the journal once for the whole batch.
+     *
+     * @param slots The slots to book (doctorID, date, timeSlot)
+     * @return For each slot, true if it was booked; false if it was unknown or not available
+     */
+    public synchronized boolean[] bookAvailableSlots(List<String[]> slots) {
+        boolean[] booked = new boolean[slots.size()];
+        Map<DoctorDay, DoctorCalendar> changed = new LinkedHashMap<>();
+        for (int i = 0; i < booked.length; i++) {
+            String[] slot = slots.get(i);
+            DoctorCalendar calendar = doctors.get(slot[0]);
+            DoctorDay day = findDay(calendar, slot[1]);
+            int ordinal = TimeSlots.toOrdinal(slot[2]);
+            if (day == null || ordinal < 0 || (day.free() & (1L << ordinal)) == 0) {
+                continue;
+            }
+
+            long freeBefore = day.free();
+            day.booked |= 1L << ordinal;
+            freeChanged(calendar, day, freeBefore);
+            changed.put(day, calendar);
+            booked[i] = true;
+        }
+
+        List<String[]> records = new ArrayList<>(changed.size());
+        for (Map.Entry<DoctorDay, DoctorCalendar> entry : changed.entrySet()) {
+            records.add(dayRecord(entry.getValue(), entry.getKey()));
+        }
+        journal.appendAll(records);
+        return booked;
+    }
+
+    /**
+     * Holds an available slot for a user so nobody else can take it until the hold is booked,
+     * released or expires.
+     *
+     * @param doctorID   The unique ID of the doctor
+     * @param date       The date of the slot
+     * @param timeSlot   The time slot to hold
+     * @param holderID   The ID of the user placing the hold
+     * @param ttlMillis  How long the hold lasts in milliseconds
+     * @return The hold, or null if the slot is not available
+     */
+    public synchronized SlotHold holdSlot(String doctorID, String date, String timeSlot, String holderID, long ttlMillis) {
+        DoctorCalendar calendar = doctors.get(doctorID);
+        DoctorDay day = findDay(calendar, date);
+        int ordinal = TimeSlots.toOrdinal(timeSlot);
+        if (day == null || ordinal < 0 || (day.free() & (1L << ordinal)) == 0) {
+            return null;
+        }
+
+        long freeBefore = day.free();
+        day.held |= 1L << ordinal;
+        freeChanged(calendar, day, freeBefore);
+        SlotHold hold = new SlotHold(calendar, day, ordinal, holderID);
+        hold.expiry = holdTimer.schedule(() -> releaseHold(hold), ttlMillis);
+        return hold;
+    }
+
+    /**
+     * Books a held slot and records the day in the journal.
+     *
+     * @param hold The hold placed on the slot
+     * @return true if the slot was booked; false if the hold had already expired or been released
+     */
+    public synchronized boolean bookHeldSlot(SlotHold hold) {
+        if (!hold.active) {
+            return false;
+        }
+        hold.active = false;
+        hold.expiry.cancel();
+
+        long bit = 1L << hold.ordinal;
+        long freeBefore = hold.day.free();
+        hold.day.held &= ~bit;
+        hold.day.booked |= bit;
+        freeChanged(hold.calendar, hold.day, freeBefore);
+        journal.append(dayRecord(hold.calendar, hold.day));
+        return true;
+    }
+
+    /**
+     * Releases a hold so the slot becomes available again. Called when the patient declines the slot,
+     * and by the timer wheel when the hold expires.
+     *
+     * @param hold The hold to release
+     * @return true if the hold was still active; false if it had already ended
+     */
+    public synchronized boolean releaseHold(SlotHold hold) {
+        if (!hold.active) {
+            return false;
+        }
+        hold.active = false;
+        hold.expiry.cancel();
+
+        long freeBefore = hold.day.free();
+        hold.day.held &= ~(1L << hold.ordinal);
+        freeChanged(hold.calendar, hold.day, freeBefore);
+        return true;
+    }
+
+    private static String[] dayRecord(DoctorCalendar calendar, DoctorDay day) {
+        return new String[]{calendar.doctorID, calendar.doctorName, day.date(),
+                Long.toHexString(day.published), Long.toHexString(day.booked)};
+    }
+
+    /**
+     * Produces the full contents of DoctorAvailability.csv from the index for journal compaction.
+     * Called by the journal while holding this index's lock.
+     *
+     * @return The header followed by one line per doctor-day
+     */
+    private List<String> snapshotLines() {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (DoctorCalendar calendar : doctors.values()) {
+            for (DoctorDay day : calendar.days.values()) {
+                if (day.published != 0) {
+                    lines.add(String.join(",", dayRecord(calendar, day)));
+                }
+            }
+        }
+        return lines;
+    }
+}
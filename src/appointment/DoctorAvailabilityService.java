@@ -1,7 +1,6 @@
 package appointment;
 
 import enums.DoctorAvailabilityStatus; // Import the enum for availability status
-import java.io.*;
 import java.util.*;
 
 /**
@@ -10,8 +9,6 @@ import java.util.*;
  * It includes functionalities for setting, viewing, and updating doctor availability.
  */
 public class DoctorAvailabilityService implements DoctorAvailabilityManager {
-    private static final String DOCTOR_AVAILABILITY_FILE = "resources/DoctorAvailability.csv";
-
     /**
      * Sets the availability of a doctor with specified time slots.
      * Each time slot is marked as "Available" in the availability record.
@@ -23,16 +20,7 @@ public class DoctorAvailabilityService implements DoctorAvailabilityManager {
      */
     @Override
     public void setDoctorAvailability(String doctorID, String doctorName, String date, String[] availableSlots) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DOCTOR_AVAILABILITY_FILE, true))) {
-            for (String slot : availableSlots) {
-                // Use enum for availability status
-                String line = String.join(",", doctorID, doctorName, date, slot, DoctorAvailabilityStatus.AVAILABLE.name());
-                writer.write(line);
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        DoctorAvailabilityIndex.getInstance().addSlots(doctorID, doctorName, date, availableSlots);
     }
 
     /**
@@ -46,18 +34,10 @@ public class DoctorAvailabilityService implements DoctorAvailabilityManager {
     @Override
     public String[] viewDoctorAvailability(String doctorID, String date) {
         List<String> availableSlots = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(DOCTOR_AVAILABILITY_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                // Assuming data structure: doctorID, doctorName, date, slot, status
-                if (data[0].equals(doctorID) && data[2].equals(date) && data[4].equals(DoctorAvailabilityStatus.AVAILABLE.name())) {
-                    String formattedSlot = String.format("Doctor: %s, Date: %s, Time Slot: %s", data[1], data[2], data[3]);
-                    availableSlots.add(formattedSlot);
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        for (String[] data : DoctorAvailabilityIndex.getInstance().findAvailableSlots(doctorID, date)) {
+            // Assuming data structure: doctorID, doctorName, date, slot, status
+            String formattedSlot = String.format("Doctor: %s, Date: %s, Time Slot: %s", data[1], data[2], data[3]);
+            availableSlots.add(formattedSlot);
         }
         return availableSlots.toArray(new String[0]);
     }
@@ -73,31 +53,8 @@ public class DoctorAvailabilityService implements DoctorAvailabilityManager {
      * @param isAvailable A boolean indicating whether the time slot is available (true) or booked (false)
      */
     public void updateDoctorAvailability(String doctorID, String doctorName, String date, String timeSlot, boolean isAvailable) {
-        List<String[]> availabilityData = new ArrayList<>();
-
-        // Load current availability data
-        try (BufferedReader reader = new BufferedReader(new FileReader(DOCTOR_AVAILABILITY_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data[0].equals(doctorID) && data[2].equals(date) && data[3].equals(timeSlot)) {
-                    // Use enum for status based on the boolean isAvailable
-                    data[4] = isAvailable ? DoctorAvailabilityStatus.AVAILABLE.name() : DoctorAvailabilityStatus.BOOKED.name();
-                }
-                availabilityData.add(data);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        // Save the updated availability data back to DoctorAvailability.csv
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DOCTOR_AVAILABILITY_FILE))) {
-            for (String[] data : availabilityData) {
-                writer.write(String.join(",", data));
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        // Use enum for status based on the boolean isAvailable
+        String status = isAvailable ? DoctorAvailabilityStatus.AVAILABLE.name() : DoctorAvailabilityStatus.BOOKED.name();
+        DoctorAvailabilityIndex.getInstance().updateStatus(doctorID, date, timeSlot, status);
     }
 }
\ No newline at end of file
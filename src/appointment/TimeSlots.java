@@ -0,0 +1,73 @@
+package appointment;
+
+/**
+ * The TimeSlots class converts between the half-hour time slot strings used throughout the
+ * system (for example {@code 09:30-10:00}) and slot ordinals from 0 ({@code 00:00-00:30}) to
+ * 47 ({@code 23:30-00:00}). Ordinals are the bit positions of the availability bitmasks kept
+ * by {@link DoctorAvailabilityIndex}.
+ */
+public final class TimeSlots {
+    /**
+     * The number of half-hour slots in a day.
+     */
+    public static final int SLOTS_PER_DAY = 48;
+
+    private TimeSlots() {
+    }
+
+    /**
+     * Converts a time slot string into its ordinal.
+     *
+     * @param timeSlot The time slot in HH:MM-HH:MM format
+     * @return The slot ordinal, or -1 if the string is not a half-hour slot on the hour or half hour
+     */
+    public static int toOrdinal(String timeSlot) {
+        if (timeSlot == null || timeSlot.length() != 11 || timeSlot.charAt(5) != '-') {
+            return -1;
+        }
+        int start = minuteOfDay(timeSlot, 0);
+        int end = minuteOfDay(timeSlot, 6);
+        if (start < 0 || end < 0 || start % 30 != 0 || end != (start + 30) % (24 * 60)) {
+            return -1;
+        }
+        return start / 30;
+    }
+
+    /**
+     * Converts a slot ordinal into its time slot string.
+     *
+     * @param ordinal The slot ordinal, from 0 to 47
+     * @return The time slot in HH:MM-HH:MM format
+     */
+    public static String toTimeSlot(int ordinal) {
+        int start = ordinal * 30;
+        int end = (start + 30) % (24 * 60);
+        return String.format("%02d:%02d-%02d:%02d", start / 60, start % 60, end / 60, end % 60);
+    }
+
+    /**
+     * Parses an HH:MM time at an offset of the string.
+     *
+     * @return The minute of the day, or -1 if the text is not a valid time
+     */
+    private static int minuteOfDay(String text, int offset) {
+        if (text.charAt(offset + 2) != ':') {
+            return -1;
+        }
+        int hour = twoDigits(text, offset);
+        int minute = twoDigits(text, offset + 3);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return -1;
+        }
+        return hour * 60 + minute;
+    }
+
+    private static int twoDigits(String text, int offset) {
+        char tens = text.charAt(offset);
+        char units = text.charAt(offset + 1);
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') {
+            return -1;
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+}
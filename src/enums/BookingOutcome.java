@@ -0,0 +1,71 @@
+package enums;
+
+/**
+ * The BookingOutcome enum represents the result of a request to book or reschedule an appointment.
+ */
+public enum BookingOutcome {
+    /**
+     * Indicates that a new appointment was booked.
+     */
+    BOOKED,
+
+    /**
+     * Indicates that the appointment was moved to the requested slot.
+     */
+    RESCHEDULED,
+
+    /**
+     * Indicates that the doctor does not exist or has never published availability.
+     */
+    UNKNOWN_DOCTOR,
+
+    /**
+     * Indicates that the patient does not exist.
+     */
+    UNKNOWN_PATIENT,
+
+    /**
+     * Indicates that the date is not a valid DD-MM-YY date.
+     */
+    INVALID_DATE,
+
+    /**
+     * Indicates that the time slot is not a valid half-hour slot.
+     */
+    INVALID_TIME_SLOT,
+
+    /**
+     * Indicates that the slot is not published or is already booked or held.
+     */
+    SLOT_UNAVAILABLE,
+
+    /**
+     * Indicates that the slot was available but someone else took it before it could be claimed.
+     */
+    SLOT_TAKEN,
+
+    /**
+     * Indicates that the hold on the slot expired or was released before it was confirmed.
+     */
+    HOLD_EXPIRED,
+
+    /**
+     * Indicates that the slot was claimed but the appointment could not be saved, so the slot was released again.
+     */
+    NOT_SAVED,
+
+    /**
+     * Indicates that the appointment does not exist.
+     */
+    APPOINTMENT_NOT_FOUND,
+
+    /**
+     * Indicates that the appointment is already cancelled or completed.
+     */
+    APPOINTMENT_CLOSED,
+
+    /**
+     * Indicates that the appointment was changed by someone else while it was being rescheduled.
+     */
+    APPOINTMENT_CHANGED
+}
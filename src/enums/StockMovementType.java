@@ -0,0 +1,32 @@
+package enums;
+
+/**
+ * The StockMovementType enum represents the reason for a change to the stock of a medicine,
+ * as recorded in the medicine movement log.
+ */
+public enum StockMovementType {
+    /**
+     * Indicates that medicine was dispensed for a prescription.
+     */
+    DISPENSE,
+
+    /**
+     * Indicates that dispensed medicine was returned to stock because the dispense could not be recorded.
+     */
+    RETURN,
+
+    /**
+     * Indicates that stock was added by an approved replenishment request.
+     */
+    REPLENISH,
+
+    /**
+     * Indicates that an administrator set the stock level directly.
+     */
+    ADJUST,
+
+    /**
+     * Indicates that an administrator changed the low stock level alert.
+     */
+    ALERT_LEVEL
+}
@@ -0,0 +1,277 @@
+package storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The AppendOnlyJournal class records changes to a CSV base file as small appended lines
+ * instead of rewriting the whole base file for every change. The owner folds the journal
+ * into its in-memory view on startup with {@link #replay()}. Once the journal reaches a
+ * record count or age threshold it is compacted in the background: the base file is
+ * rewritten from the owner's current view and the folded journal records are discarded.
+ *
+ * <p>Compaction first moves the active journal aside and then replaces the base file through
+ * {@link SharedCsvFile#replace}, which holds the file's lock exclusively, forces the new
+ * contents to disk and renames them over the base file atomically. A crash at any point leaves
+ * a base file and journal that replay to the same state, so replayed records must be
+ * idempotent upserts, and readers in other processes never see a half-written base file.</p>
+ *
+ * <p>The owner's view is loaded once per process, so a second process working on the same files
+ * would not see the first one's changes and its compaction would overwrite them. Each journal
+ * therefore holds an exclusive lock on its {@code .owner} file from creation until the process
+ * exits, and a journal whose owner file is locked by another process cannot be created.</p>
+ *
+ * <p>Records are written by a {@link GroupCommitWriter}, so appends from concurrent owners
+ * reach the journal file in groups. A record appended just before a compaction may be written
+ * to the new journal after the snapshot that already contains it, which replay tolerates for
+ * the same reason.</p>
+ */
+public final class AppendOnlyJournal {
+    private static final long AGE_CHECK_INTERVAL_MS = 1000;
+
+    private final Path basePath;
+    private final SharedCsvFile baseFile;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final int maxRecords;
+    private final long maxAgeMillis;
+    private final Object ownerLock;
+    private final Supplier<List<String>> snapshot;
+    private final Object compactionLock = new Object();
+    private final ScheduledExecutorService compactor;
+    private final GroupCommitWriter groupWriter;
+    private final Object channelLock = new Object();
+    private final FileChannel ownerChannel; // Kept open for the life of the process; closing it would release the owner lock
+
+    private FileChannel channel; // Guarded by channelLock
+    private int records;
+    private long oldestRecordMillis;
+    private boolean compactionScheduled;
+
+    /**
+     * Creates a journal for a base file.
+     *
+     * @param basePath     The path of the CSV base file the journal belongs to
+     * @param journalPath  The path of the journal file
+     * @param maxRecords   The number of journal records that triggers a compaction
+     * @param maxAgeMillis The age of the oldest journal record that triggers a compaction
+     * @param ownerLock    The lock guarding the owner's in-memory view; held while taking a snapshot
+     * @param snapshot     Produces every line of the base file (including the header) from the owner's view,
+     *                     or null to skip the compaction and keep the journal records
+     * @throws IllegalStateException if another process owns the journal, or its owner file cannot be locked
+     */
+    public AppendOnlyJournal(String basePath, String journalPath, int maxRecords, long maxAgeMillis,
+                             Object ownerLock, Supplier<List<String>> snapshot) {
+        this.basePath = Paths.get(basePath);
+        this.baseFile = SharedCsvFile.of(basePath);
+        this.journalPath = Paths.get(journalPath);
+        this.compactingPath = Paths.get(journalPath + ".compacting");
+        this.maxRecords = maxRecords;
+        this.maxAgeMillis = maxAgeMillis;
+        this.ownerLock = ownerLock;
+        this.snapshot = snapshot;
+        this.ownerChannel = lockOwner(Paths.get(journalPath + ".owner"));
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor-" + this.journalPath.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfOld, AGE_CHECK_INTERVAL_MS, AGE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        groupWriter = new GroupCommitWriter("journal-writer-" + this.journalPath.getFileName(), this::writeGroup);
+    }
+
+    /**
+     * Takes the exclusive lock on a journal's owner file and returns the channel that holds it.
+     */
+    private static FileChannel lockOwner(Path ownerPath) {
+        try {
+            FileChannel owner = FileChannel.open(ownerPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (owner.tryLock() == null) {
+                owner.close();
+                throw new IllegalStateException(ownerPath.getFileName()
+                        + " is locked by another process; only one process may use these resources at a time");
+            }
+            return owner;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to lock " + ownerPath.getFileName(), e);
+        }
+    }
+
+    /**
+     * Reads the journal records that have not yet been folded into the base file, oldest first.
+     *
+     * @return The journal records split into fields
+     */
+    public List<String[]> replay() {
+        List<String[]> result = new ArrayList<>();
+        for (Path path : new Path[]{compactingPath, journalPath}) {
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(path)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        result.add(line.split(","));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading " + path.getFileName() + ": " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            records = result.size();
+            oldestRecordMillis = records > 0 ? System.currentTimeMillis() : 0;
+        }
+        return result;
+    }
+
+    /**
+     * Appends one record to the journal and schedules a compaction if the journal is full.
+     *
+     * @param fields The fields of the record
+     * @return A future that completes once the record has been written
+     */
+    public CompletableFuture<Void> append(String... fields) {
+        return appendAll(List.<String[]>of(fields));
+    }
+
+    /**
+     * Appends several records to the journal as one group and schedules a compaction if the journal is full.
+     *
+     * @param batch The records to append, each split into fields
+     * @return A future that completes once the records have been written
+     */
+    public synchronized CompletableFuture<Void> appendAll(List<String[]> batch) {
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<String> lines = new ArrayList<>(batch.size());
+        for (String[] fields : batch) {
+            lines.add(String.join(",", fields));
+        }
+        CompletableFuture<Void> written = groupWriter.append(lines);
+
+        if (records == 0) {
+            oldestRecordMillis = System.currentTimeMillis();
+        }
+        records += batch.size();
+        if (records >= maxRecords && !compactionScheduled) {
+            compactionScheduled = true;
+            compactor.execute(this::compact);
+        }
+        return written;
+    }
+
+    /**
+     * Writes one group of records to the active journal file, opening it if a compaction closed it.
+     */
+    private void writeGroup(ByteBuffer group, boolean force) throws IOException {
+        synchronized (channelLock) {
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                while (group.hasRemaining()) {
+                    channel.write(group);
+                }
+                if (force) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing " + journalPath.getFileName() + ": " + e.getMessage());
+                throw e;
+            }
+        }
+    }
+
+    private void compactIfOld() {
+        boolean due;
+        synchronized (this) {
+            due = records > 0 && System.currentTimeMillis() - oldestRecordMillis >= maxAgeMillis;
+        }
+        if (due) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the base file from the owner's current view and discards the folded journal records.
+     */
+    public void compact() {
+        compact(false);
+    }
+
+    /**
+     * Rewrites the base file from the owner's current view even if no journal records are pending,
+     * for example after the owner has read the base file in an older format.
+     */
+    public void rewrite() {
+        compact(true);
+    }
+
+    private void compact(boolean force) {
+        synchronized (compactionLock) {
+            List<String> lines;
+            synchronized (ownerLock) {
+                synchronized (this) {
+                    compactionScheduled = false;
+                    if (!force && records == 0 && !Files.exists(compactingPath)) {
+                        return;
+                    }
+                    lines = snapshot.get();
+                    if (lines == null) {
+                        return;
+                    }
+                    try {
+                        synchronized (channelLock) {
+                            if (channel != null) {
+                                channel.close();
+                                channel = null;
+                            }
+                            if (Files.exists(journalPath)) {
+                                rotateJournal();
+                            }
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Error rotating " + journalPath.getFileName() + ": " + e.getMessage());
+                        return;
+                    }
+                    records = 0;
+                    oldestRecordMillis = 0;
+                }
+            }
+
+            try {
+                baseFile.replace(lines);
+                Files.deleteIfExists(compactingPath);
+            } catch (IOException e) {
+                System.err.println("Error compacting " + basePath.getFileName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Moves the active journal aside so new records go to a fresh file while the base file is rewritten.
+     * Records left over from an interrupted compaction are kept ahead of the newer ones.
+     */
+    private void rotateJournal() throws IOException {
+        if (Files.exists(compactingPath)) {
+            Files.write(compactingPath, Files.readAllBytes(journalPath), StandardOpenOption.APPEND);
+            Files.delete(journalPath);
+        } else {
+            Files.move(journalPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
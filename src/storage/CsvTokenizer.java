@@ -0,0 +1,279 @@
+package storage;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * The CsvTokenizer class scans comma-separated rows from a reader without allocating per row.
+ * Characters are read into a reusable {@code char[]} window and each row is recorded as a set
+ * of field offsets into that window. Fields are only turned into Strings when a caller asks
+ * for them, so a scan that compares one column does not pay for splitting the whole line.
+ *
+ * <p>The resource files do not quote fields, so a comma always separates fields. Blank lines
+ * are skipped and both {@code \n} and {@code \r\n} line endings are accepted.</p>
+ */
+public final class CsvTokenizer implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    private int rowStart;
+    private int rowEnd;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+
+    /**
+     * Creates a tokenizer over a reader with the default window size.
+     *
+     * @param reader The source of the CSV text
+     */
+    public CsvTokenizer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a tokenizer over a reader with the given initial window size.
+     * The window grows if a single row does not fit.
+     *
+     * @param reader     The source of the CSV text
+     * @param bufferSize The initial window size in characters
+     */
+    public CsvTokenizer(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Opens a tokenizer over a file.
+     *
+     * @param filePath The path to the CSV file
+     * @return A tokenizer positioned before the first row
+     * @throws IOException if the file cannot be opened
+     */
+    public static CsvTokenizer open(String filePath) throws IOException {
+        return new CsvTokenizer(new FileReader(filePath));
+    }
+
+    /**
+     * Advances to the next non-blank row.
+     *
+     * @return true if a row was read; false at the end of the input
+     * @throws IOException if reading fails
+     */
+    public boolean nextRow() throws IOException {
+        while (true) {
+            if (!scanRow()) {
+                return false;
+            }
+            if (rowEnd > rowStart) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Scans one line, recording the field offsets. Returns false only when no characters remain.
+     */
+    private boolean scanRow() throws IOException {
+        fieldCount = 0;
+        int scan = position;
+        int fieldStart = position;
+
+        while (true) {
+            if (scan == limit) {
+                int previousPosition = position;
+                boolean filled = fill();
+
+                // fill() moves the partial row to the front of the window
+                int shift = previousPosition - position;
+                scan -= shift;
+                fieldStart -= shift;
+                for (int i = 0; i < fieldCount; i++) {
+                    fieldStarts[i] -= shift;
+                    fieldEnds[i] -= shift;
+                }
+
+                if (!filled) {
+                    if (scan == position) {
+                        return false; // Nothing left at all
+                    }
+                    endField(fieldStart, scan); // Last row without a line ending
+                    rowStart = position;
+                    rowEnd = scan;
+                    position = scan;
+                    return true;
+                }
+                continue;
+            }
+
+            char c = buffer[scan];
+            if (c == ',') {
+                endField(fieldStart, scan);
+                fieldStart = scan + 1;
+            } else if (c == '\n') {
+                int end = scan > fieldStart && buffer[scan - 1] == '\r' ? scan - 1 : scan;
+                endField(fieldStart, end);
+                rowStart = position;
+                rowEnd = end;
+                position = scan + 1;
+                return true;
+            }
+            scan++;
+        }
+    }
+
+    private void endField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    /**
+     * Reads more characters, keeping the unfinished row (from {@code position}) at the start of the window.
+     *
+     * @return true if at least one character was added; false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2); // A single row is larger than the window
+        }
+        position = 0;
+        limit = remaining;
+
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read <= 0) {
+            endOfInput = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Returns the number of fields in the current row.
+     *
+     * @return The field count
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Materializes one field of the current row.
+     *
+     * @param index The zero-based field index
+     * @return The field value, or an empty string if the row has fewer fields
+     */
+    public String field(int index) {
+        if (index >= fieldCount) {
+            return "";
+        }
+        return new String(buffer, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    /**
+     * Compares one field of the current row with a value without materializing the field.
+     *
+     * @param index The zero-based field index
+     * @param value The value to compare with
+     * @return true if the field exists and equals the value
+     */
+    public boolean fieldEquals(int index, String value) {
+        return index < fieldCount && regionMatches(index, value, false);
+    }
+
+    /**
+     * Compares one field of the current row with a value, ignoring case, without materializing the field.
+     *
+     * @param index The zero-based field index
+     * @param value The value to compare with
+     * @return true if the field exists and equals the value ignoring case
+     */
+    public boolean fieldEqualsIgnoreCase(int index, String value) {
+        return index < fieldCount && regionMatches(index, value, true);
+    }
+
+    private boolean regionMatches(int index, String value, boolean ignoreCase) {
+        int start = fieldStarts[index];
+        int length = fieldEnds[index] - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char a = buffer[start + i];
+            char b = value.charAt(i);
+            if (a != b && (!ignoreCase || Character.toUpperCase(a) != Character.toUpperCase(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses one field of the current row as a non-negative decimal integer without materializing it.
+     *
+     * @param index The zero-based field index
+     * @return The parsed value
+     * @throws NumberFormatException if the field is missing or not a number
+     */
+    public int fieldAsInt(int index) {
+        if (index >= fieldCount || fieldEnds[index] == fieldStarts[index]) {
+            throw new NumberFormatException("Missing numeric field " + index);
+        }
+        int value = 0;
+        for (int i = fieldStarts[index]; i < fieldEnds[index]; i++) {
+            char c = buffer[i];
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a number: " + field(index));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Materializes all fields of the current row.
+     *
+     * @return The fields of the row, as {@code line.split(",")} would return them
+     */
+    public String[] fields() {
+        int count = fieldCount;
+        while (count > 1 && fieldEnds[count - 1] == fieldStarts[count - 1]) {
+            count--; // Match String.split, which drops trailing empty fields
+        }
+        String[] fields = new String[count];
+        for (int i = 0; i < count; i++) {
+            fields[i] = field(i);
+        }
+        return fields;
+    }
+
+    /**
+     * Materializes the whole current row as it appeared in the input, without the line ending.
+     *
+     * @return The row text
+     */
+    public String row() {
+        return new String(buffer, rowStart, rowEnd - rowStart);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,86 @@
+package storage;
+
+/**
+ * The EntityId class packs the IDs of patients, doctors and staff, such as {@code P1001},
+ * {@code D001} and {@code A001}, into a single int: the prefix letter that tags the kind of
+ * entity, the number of digits and the number itself. Keeping the number of digits keeps
+ * {@code P001} (a pharmacist) and {@code P1001} (a patient) apart, and lets every packed ID be
+ * turned back into exactly the ID it came from.
+ *
+ * <p>Packed IDs are used as the keys of {@link IntObjectMap} and {@link IntIntMap}, so indexes
+ * over people are looked up without building a String hash or boxing a key. An ID can be packed
+ * if it is one upper-case letter followed by 1 to 7 digits.</p>
+ */
+public final class EntityId {
+    /**
+     * The value returned for an ID that cannot be packed. No packable ID packs to it.
+     */
+    public static final int NONE = -1;
+
+    private static final int MAX_DIGITS = 7;
+    private static final int NUMBER_BITS = 24; // Holds 9999999, the largest 7-digit number
+    private static final int NUMBER_MASK = (1 << NUMBER_BITS) - 1;
+
+    private EntityId() {
+    }
+
+    /**
+     * Packs an ID into an int.
+     *
+     * @param id The ID, for example P1001
+     * @return The packed ID, or {@link #NONE} if the ID is not a letter followed by 1 to 7 digits
+     */
+    public static int encode(String id) {
+        if (id == null || id.length() < 2 || id.length() > MAX_DIGITS + 1) {
+            return NONE;
+        }
+        char prefix = id.charAt(0);
+        if (prefix < 'A' || prefix > 'Z') {
+            return NONE;
+        }
+        int number = 0;
+        for (int i = 1; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return NONE;
+            }
+            number = number * 10 + (c - '0');
+        }
+        int tag = (prefix - 'A') * MAX_DIGITS + (id.length() - 2);
+        return tag << NUMBER_BITS | number;
+    }
+
+    /**
+     * Turns a packed ID back into its ID.
+     *
+     * @param entityId The packed ID
+     * @return The ID, with the leading zeros it was packed with
+     * @throws IllegalArgumentException if the value is not a packed ID
+     */
+    public static String decode(int entityId) {
+        int tag = entityId >>> NUMBER_BITS;
+        if (tag >= 26 * MAX_DIGITS) {
+            throw new IllegalArgumentException("Not a packed ID: " + entityId);
+        }
+        int digits = tag % MAX_DIGITS + 1;
+        String number = Integer.toString(entityId & NUMBER_MASK);
+        if (number.length() > digits) {
+            throw new IllegalArgumentException("Not a packed ID: " + entityId);
+        }
+        StringBuilder id = new StringBuilder(digits + 1).append(prefix(entityId));
+        for (int i = number.length(); i < digits; i++) {
+            id.append('0');
+        }
+        return id.append(number).toString();
+    }
+
+    /**
+     * Gets the prefix letter of a packed ID, which tags the kind of entity.
+     *
+     * @param entityId The packed ID
+     * @return The prefix letter, for example P for P1001
+     */
+    public static char prefix(int entityId) {
+        return (char) ('A' + (entityId >>> NUMBER_BITS) / MAX_DIGITS);
+    }
+}
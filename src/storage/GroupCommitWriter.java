@@ -0,0 +1,201 @@
+package storage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The GroupCommitWriter class collects lines appended to one file by concurrent callers and
+ * writes them in groups from a single background thread. While one group is being written,
+ * new appends queue up behind it and become the next group, so a burst of small appends is
+ * turned into a few large writes. Each group is written with one call to the sink and, when
+ * durable writes are enabled with {@code -Dhms.syncWrites=true}, forced to disk once.
+ *
+ * <p>Every append returns a future that completes when its lines have been written, or
+ * completes exceptionally with the {@link IOException} that failed the group. Groups are
+ * written in the order they were appended. Lines still queued when the JVM exits are written
+ * by a shutdown hook.</p>
+ */
+public final class GroupCommitWriter {
+    /**
+     * Whether each group is forced to disk before its appends complete.
+     */
+    public static final boolean SYNC_WRITES = Boolean.getBoolean("hms.syncWrites");
+
+    private static final int MAX_GROUP_APPENDS = 256;
+
+    /**
+     * Writes one group of encoded lines to the underlying file.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * Writes the whole group.
+         *
+         * @param group The lines of the group, UTF-8 encoded and each terminated by a line separator
+         * @param force true to force the written bytes to disk before returning
+         * @throws IOException if the group cannot be written
+         */
+        void write(ByteBuffer group, boolean force) throws IOException;
+    }
+
+    /**
+     * The lines of one append and the future that completes once they are written.
+     */
+    private static final class Append {
+        private final List<String> lines;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        private Append(List<String> lines) {
+            this.lines = lines;
+        }
+    }
+
+    private final String name;
+    private final Sink sink;
+    private final boolean force;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private Thread worker;
+
+    /**
+     * Creates a group commit writer. The writer thread starts with the first append.
+     *
+     * @param name The name of the writer thread
+     * @param sink Writes each group to the file
+     */
+    public GroupCommitWriter(String name, Sink sink) {
+        this(name, sink, SYNC_WRITES);
+    }
+
+    /**
+     * Creates a group commit writer. The writer thread starts with the first append.
+     *
+     * @param name  The name of the writer thread
+     * @param sink  Writes each group to the file
+     * @param force true to force every group to disk
+     */
+    public GroupCommitWriter(String name, Sink sink, boolean force) {
+        this.name = name;
+        this.sink = sink;
+        this.force = force;
+    }
+
+    /**
+     * Queues lines to be appended as part of the next group.
+     *
+     * @param lines The lines to append, without line separators
+     * @return A future that completes once the lines have been written
+     */
+    public CompletableFuture<Void> append(String... lines) {
+        return append(Arrays.asList(lines));
+    }
+
+    /**
+     * Queues lines to be appended as part of the next group.
+     *
+     * @param lines The lines to append, without line separators
+     * @return A future that completes once the lines have been written
+     */
+    public CompletableFuture<Void> append(List<String> lines) {
+        Append append = new Append(lines);
+        queue.add(append);
+        startWorker();
+        return append.written;
+    }
+
+    /**
+     * Returns a future that completes once every line appended so far has been written.
+     *
+     * @return A future for the end of the current queue
+     */
+    public CompletableFuture<Void> flush() {
+        return append(List.of());
+    }
+
+    /**
+     * Waits for a write to finish, rethrowing the failure of its group.
+     *
+     * @param written A future returned by this class
+     * @throws IOException if the group could not be written, or the wait was interrupted
+     */
+    public static void await(CompletableFuture<Void> written) throws IOException {
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a group write");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private synchronized void startWorker() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> flush().handle((ignored, e) -> null).join(), name + "-shutdown"));
+        } catch (IllegalStateException e) {
+            // Already shutting down; the caller of this append is responsible for waiting on it
+        }
+    }
+
+    private void run() {
+        List<Append> group = new ArrayList<>(MAX_GROUP_APPENDS);
+        while (true) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(group, MAX_GROUP_APPENDS - 1);
+            commit(group);
+            group.clear();
+        }
+    }
+
+    /**
+     * Writes one group with a single call to the sink and completes the futures of its appends.
+     */
+    private void commit(List<Append> group) {
+        StringBuilder text = new StringBuilder();
+        for (Append append : group) {
+            for (String line : append.lines) {
+                text.append(line).append(System.lineSeparator());
+            }
+        }
+
+        IOException failure = null;
+        if (text.length() > 0) {
+            try {
+                sink.write(StandardCharsets.UTF_8.encode(CharBuffer.wrap(text)), force);
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException(e);
+            }
+        }
+        for (Append append : group) {
+            if (failure == null) {
+                append.written.complete(null);
+            } else {
+                append.written.completeExceptionally(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package storage;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The HashedTimerWheel class runs many short-lived timeouts from a single background thread.
+ * Timeouts are hashed by their deadline tick into a fixed ring of buckets; every tick the
+ * thread visits one bucket and fires the timeouts in it whose remaining rotation count has
+ * reached zero. Scheduling and cancelling are constant-time and never touch the ring
+ * directly, so a timeout costs one small object no matter how many are pending.
+ *
+ * <p>Timeouts fire at most one tick late. Tasks run on the timer thread and should be short.</p>
+ */
+public final class HashedTimerWheel {
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * A scheduled task that can be cancelled until it fires.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long remainingRounds;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancels the timeout so its task never runs.
+         *
+         * @return true if the timeout was cancelled; false if it already fired or was cancelled
+         */
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+    }
+
+    private final String name;
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private Thread worker;
+    private long tick; // Owned by the worker thread
+
+    /**
+     * Creates a timer wheel. The worker thread starts with the first scheduled timeout.
+     *
+     * @param name       The name of the worker thread
+     * @param tickMillis The length of one tick in milliseconds
+     * @param wheelSize  The minimum number of buckets; rounded up to a power of two
+     */
+    public HashedTimerWheel(String name, long tickMillis, int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task        The task to run on the timer thread
+     * @param delayMillis The delay in milliseconds
+     * @return The timeout, which can be cancelled until it fires
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        long elapsed = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(task, (elapsed + tickNanos - 1) / tickNanos);
+        scheduled.add(timeout);
+        startWorker();
+        return timeout;
+    }
+
+    private synchronized void startWorker() {
+        if (worker == null) {
+            worker = new Thread(this::run, name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                continue;
+            }
+            tick++;
+            transferScheduled();
+            expireBucket((int) (tick & mask));
+        }
+    }
+
+    /**
+     * Moves newly scheduled timeouts into the bucket of their deadline tick.
+     */
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state.get() != PENDING) {
+                continue;
+            }
+            long deadlineTick = Math.max(timeout.deadlineTick, tick); // Already due: fire in this tick
+            timeout.remainingRounds = (deadlineTick - tick) / buckets.length;
+            int index = (int) (deadlineTick & mask);
+            timeout.next = buckets[index];
+            buckets[index] = timeout;
+        }
+    }
+
+    /**
+     * Fires the due timeouts of a bucket, dropping cancelled ones and keeping those due in a later rotation.
+     */
+    private void expireBucket(int index) {
+        Timeout kept = null;
+        for (Timeout timeout = buckets[index]; timeout != null; ) {
+            Timeout next = timeout.next;
+            if (timeout.state.get() == PENDING && timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                timeout.next = kept;
+                kept = timeout;
+            } else if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Timer task failed on " + name + ": " + e);
+                }
+            }
+            timeout = next;
+        }
+        buckets[index] = kept;
+    }
+}
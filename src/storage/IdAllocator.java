@@ -0,0 +1,161 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * The IdAllocator class hands out unique, monotonically increasing numeric IDs that survive
+ * restarts. Each process reserves a block of IDs at a time by advancing a high-water mark in a
+ * small sequence file, and then serves IDs from that block with a lock-free counter. The
+ * sequence file is only touched once per block.
+ *
+ * <p>The high-water mark is written to a temporary file, forced to disk and atomically renamed
+ * over the sequence file before any ID of the block is used, and reservations are serialized
+ * across processes with a lock file. A crash can therefore leave gaps, but an ID is never
+ * handed out twice.</p>
+ */
+public final class IdAllocator {
+    private static final Map<Path, IdAllocator> ALLOCATORS = new ConcurrentHashMap<>();
+
+    /**
+     * A reserved range of IDs; {@code next} runs past {@code end} once the block is used up.
+     */
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private final Path sequencePath;
+    private final Path lockPath;
+    private final int blockSize;
+    private final long floor;
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0));
+
+    private IdAllocator(Path sequencePath, int blockSize, long floor) {
+        this.sequencePath = sequencePath;
+        this.lockPath = sequencePath.resolveSibling(sequencePath.getFileName() + ".lock");
+        this.blockSize = blockSize;
+        this.floor = floor;
+    }
+
+    /**
+     * Returns the shared allocator for a sequence file, creating it on first use.
+     *
+     * @param sequencePath The path of the file holding the high-water mark
+     * @param blockSize    The number of IDs reserved at a time
+     * @param floor        Supplies the smallest ID that may be handed out; only called when the allocator is created
+     * @return The allocator for the sequence file
+     */
+    public static IdAllocator open(String sequencePath, int blockSize, LongSupplier floor) {
+        return ALLOCATORS.computeIfAbsent(Paths.get(sequencePath).toAbsolutePath(),
+                path -> new IdAllocator(path, blockSize, floor.getAsLong()));
+    }
+
+    /**
+     * Returns the next ID. Only the call that exhausts a block waits for the next reservation.
+     *
+     * @return A unique ID
+     * @throws IllegalStateException if a new block cannot be reserved
+     */
+    public long next() {
+        while (true) {
+            Block current = block.get();
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            refill(current);
+        }
+    }
+
+    /**
+     * Replaces an exhausted block unless another thread already did.
+     */
+    private synchronized void refill(Block exhausted) {
+        if (block.get() == exhausted) {
+            long start = reserve();
+            block.set(new Block(start, start + blockSize));
+        }
+    }
+
+    /**
+     * Advances the persisted high-water mark by one block.
+     *
+     * @return The first ID of the reserved block
+     */
+    private long reserve() {
+        try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = lockChannel.lock();
+            try {
+                long start = Math.max(readHighWaterMark(), floor);
+                writeHighWaterMark(start + blockSize);
+                return start;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Unable to reserve IDs from " + sequencePath.getFileName(), e);
+        }
+    }
+
+    private long readHighWaterMark() throws IOException {
+        if (!Files.exists(sequencePath)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(sequencePath, StandardCharsets.US_ASCII).trim());
+    }
+
+    private void writeHighWaterMark(long value) throws IOException {
+        Path tempPath = sequencePath.resolveSibling(sequencePath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap((value + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII)));
+            channel.force(true);
+        }
+        Files.move(tempPath, sequencePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Make the rename itself durable; not every platform allows opening a directory
+        Path directory = sequencePath.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The rename is still atomic, it may just not be flushed yet
+        }
+    }
+
+    /**
+     * Extracts the numeric part of an ID such as {@code AP1042}.
+     *
+     * @param id     The full ID
+     * @param prefix The expected prefix
+     * @return The numeric part, or -1 if the ID does not have the prefix followed by digits
+     */
+    public static long parseNumber(String id, String prefix) {
+        if (id == null || !id.startsWith(prefix) || id.length() == prefix.length() || id.length() - prefix.length() > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,173 @@
+package storage;
+
+import java.util.Arrays;
+
+/**
+ * The IntIntMap class is a hash map from int keys to int values held in plain int arrays, so
+ * neither keys nor values are ever boxed. It uses the same linear probing and backward-shift
+ * removal as {@link IntObjectMap}, with a flag per slot marking the slots in use so that every
+ * int can be a key.
+ *
+ * <p>Not thread-safe.</p>
+ */
+public final class IntIntMap {
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     */
+    public IntIntMap() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty map sized for a number of entries.
+     *
+     * @param expectedSize The number of entries to hold without resizing
+     */
+    public IntIntMap(int expectedSize) {
+        allocate(IntObjectMap.capacityFor(expectedSize));
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key          The key
+     * @param defaultValue The value to return if the key is not in the map
+     * @return The value of the key, or {@code defaultValue} if the key is not in the map
+     */
+    public int get(int key, int defaultValue) {
+        for (int i = slot(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Checks whether a key is in the map.
+     *
+     * @param key The key
+     * @return true if the key has a value; false otherwise
+     */
+    public boolean containsKey(int key) {
+        for (int i = slot(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key   The key
+     * @param value The value
+     */
+    public void put(int key, int value) {
+        int i = slot(key);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+        if (++size * 3 > keys.length * 2) {
+            resize(keys.length << 1);
+        }
+    }
+
+    /**
+     * Removes a key and its value.
+     *
+     * @param key The key
+     * @return true if the key was in the map; false otherwise
+     */
+    public boolean remove(int key) {
+        for (int i = slot(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The number of keys in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the map is empty.
+     *
+     * @return true if the map has no entries; false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void shiftBack(int gap) {
+        for (int i = (gap + 1) & mask; used[i]; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldUsed[j]) {
+                int i = slot(oldKeys[j]);
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                used[i] = true;
+            }
+        }
+    }
+}
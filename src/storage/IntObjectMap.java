@@ -0,0 +1,209 @@
+package storage;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * The IntObjectMap class is a hash map from int keys to objects that stores its keys in a plain
+ * int array, so a lookup neither boxes the key nor follows a pointer to an entry object. Entries
+ * live in two parallel arrays searched by linear probing, and removal shifts later entries back
+ * instead of leaving markers, so lookups stay short however many entries have been removed.
+ *
+ * <p>Values cannot be null; an empty slot is one without a value. Not thread-safe.</p>
+ *
+ * @param <V> The type of the values
+ */
+public final class IntObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     */
+    public IntObjectMap() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty map sized for a number of entries.
+     *
+     * @param expectedSize The number of entries to hold without resizing
+     */
+    public IntObjectMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key The key
+     * @return The value, or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a key is in the map.
+     *
+     * @param key The key
+     * @return true if the key has a value; false otherwise
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key   The key
+     * @param value The value; must not be null
+     * @return The previous value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntObjectMap values cannot be null");
+        }
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 3 > keys.length * 2) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the value of a key, adding the value made by a function if the key is not in the map.
+     *
+     * @param key      The key
+     * @param function Makes the value for a missing key; must not return null
+     * @return The value of the key
+     */
+    public V computeIfAbsent(int key, IntFunction<? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Removes a key and its value.
+     *
+     * @param key The key
+     * @return The removed value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The number of keys in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the map is empty.
+     *
+     * @return true if the map has no entries; false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Empties slot {@code gap} and moves back every later entry of the probe run that would no
+     * longer be found past the gap.
+     */
+    private void shiftBack(int gap) {
+        for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            // Move the entry if its home slot is not between the gap and its current slot
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j]);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Returns the power-of-two capacity that holds a number of entries at most two-thirds full.
+     */
+    static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while ((long) capacity * 2 < (long) expectedSize * 3 && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
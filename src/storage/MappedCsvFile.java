@@ -0,0 +1,216 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The MappedCsvFile class answers key lookups over a large CSV file by memory-mapping it with
+ * {@link FileChannel#map} and scanning the mapped bytes directly for the ASCII delimiters
+ * {@code ,} and {@code \n}. Key columns are compared as bytes, and only rows that match are
+ * decoded into Strings, so a lookup over a multi-hundred-MB history file neither decodes every
+ * byte nor fills the heap with discarded lines.
+ *
+ * <p>One instance is shared per path. The mapping is reused between lookups and is only
+ * remapped when the file's size, modification time or identity changes (for example after
+ * rows were appended or the file was replaced). Files larger than 2 GB are not supported.</p>
+ */
+public final class MappedCsvFile {
+    private static final Map<Path, MappedCsvFile> FILES = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private MappedByteBuffer buffer;
+    private long mappedSize = -1;
+    private FileTime mappedTime;
+    private Object mappedKey;
+
+    private MappedCsvFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the shared mapped view of a CSV file.
+     *
+     * @param filePath The path to the CSV file
+     * @return The mapped view of the file
+     */
+    public static MappedCsvFile of(String filePath) {
+        return FILES.computeIfAbsent(Paths.get(filePath).toAbsolutePath(), MappedCsvFile::new);
+    }
+
+    /**
+     * Finds the first row whose key column equals the key.
+     *
+     * @param column The zero-based index of the key column
+     * @param key    The ASCII key to look for
+     * @return The fields of the first matching row, or null if no row matches
+     * @throws IOException if the file cannot be mapped
+     */
+    public String[] findFirst(int column, String key) throws IOException {
+        List<String[]> rows = scan(column, Collections.singleton(key), true);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Finds all rows whose key column equals one of the keys, in file order.
+     *
+     * @param column The zero-based index of the key column
+     * @param keys   The ASCII keys to look for
+     * @return The fields of every matching row
+     * @throws IOException if the file cannot be mapped
+     */
+    public List<String[]> findAll(int column, Collection<String> keys) throws IOException {
+        return scan(column, keys, false);
+    }
+
+    private List<String[]> scan(int column, Collection<String> keys, boolean firstOnly) throws IOException {
+        List<String[]> result = new ArrayList<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+
+        // Group the encoded keys by length so most fields are rejected by a length check
+        Map<Integer, List<byte[]>> keysByLength = new HashMap<>();
+        for (String key : keys) {
+            byte[] encoded = key.getBytes(Charset.defaultCharset());
+            keysByLength.computeIfAbsent(encoded.length, length -> new ArrayList<>()).add(encoded);
+        }
+
+        ByteBufferView view = map();
+        if (view == null) {
+            return result;
+        }
+        MappedByteBuffer bytes = view.buffer;
+        int limit = view.limit;
+
+        int rowStart = 0;
+        while (rowStart < limit) {
+            // Locate the key column of this row
+            int fieldStart = rowStart;
+            int fieldIndex = 0;
+            int position = rowStart;
+            int fieldEnd = -1;
+            while (position < limit) {
+                byte b = bytes.get(position);
+                if (b == '\n') {
+                    break;
+                }
+                if (b == ',') {
+                    if (fieldIndex == column) {
+                        fieldEnd = position;
+                        break;
+                    }
+                    fieldIndex++;
+                    fieldStart = position + 1;
+                }
+                position++;
+            }
+            if (fieldEnd < 0 && fieldIndex == column) {
+                fieldEnd = position; // Key is the last field on the line
+            }
+
+            // Find the end of the row
+            int rowEnd = position;
+            while (rowEnd < limit && bytes.get(rowEnd) != '\n') {
+                rowEnd++;
+            }
+
+            if (fieldEnd >= 0) {
+                int length = fieldEnd - fieldStart;
+                if (length > 0 && bytes.get(fieldEnd - 1) == '\r') {
+                    length--;
+                }
+                List<byte[]> candidates = keysByLength.get(length);
+                if (candidates != null && matches(bytes, fieldStart, candidates)) {
+                    result.add(decodeRow(bytes, rowStart, rowEnd));
+                    if (firstOnly) {
+                        return result;
+                    }
+                }
+            }
+            rowStart = rowEnd + 1;
+        }
+        return result;
+    }
+
+    private static boolean matches(MappedByteBuffer bytes, int start, List<byte[]> candidates) {
+        for (byte[] key : candidates) {
+            boolean equal = true;
+            for (int i = 0; i < key.length; i++) {
+                if (bytes.get(start + i) != key[i]) {
+                    equal = false;
+                    break;
+                }
+            }
+            if (equal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] decodeRow(MappedByteBuffer bytes, int start, int end) {
+        if (end > start && bytes.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] row = new byte[end - start];
+        bytes.get(start, row);
+        return new String(row, Charset.defaultCharset()).split(",");
+    }
+
+    /**
+     * A mapping together with the number of bytes that were valid when it was taken.
+     */
+    private static final class ByteBufferView {
+        private final MappedByteBuffer buffer;
+        private final int limit;
+
+        private ByteBufferView(MappedByteBuffer buffer, int limit) {
+            this.buffer = buffer;
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * Returns the current mapping, remapping the file only if it changed since the last lookup.
+     *
+     * @return The current mapping, or null if the file does not exist or is empty
+     */
+    private synchronized ByteBufferView map() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            buffer = null;
+            mappedSize = -1;
+            return null;
+        }
+
+        long size = attributes.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(path.getFileName() + " is too large to map");
+        }
+        boolean unchanged = buffer != null && size == mappedSize
+                && attributes.lastModifiedTime().equals(mappedTime)
+                && Objects.equals(attributes.fileKey(), mappedKey);
+        if (!unchanged) {
+            if (size == 0) {
+                buffer = null;
+            } else {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+            }
+            mappedSize = size;
+            mappedTime = attributes.lastModifiedTime();
+            mappedKey = attributes.fileKey();
+        }
+        return buffer == null ? null : new ByteBufferView(buffer, (int) size);
+    }
+}
@@ -0,0 +1,296 @@
+package storage;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The SharedCsvFile class coordinates reads and writes of one CSV file between threads and
+ * between processes that share the same resources directory. Every file has its own lock file
+ * next to it, so changing one file never blocks access to another.
+ *
+ * <p>The lock file has two one-byte regions. Readers and appenders hold a shared lock on the
+ * content region, while a rewrite holds it exclusively. Appenders additionally hold an exclusive
+ * lock on the tail region only, so appends are ordered among themselves but never wait for
+ * readers. A rewrite writes the new contents to a temporary file, forces it to disk and renames
+ * it over the CSV file atomically, so a reader or a crash never sees a half-written file.
+ * Appends from concurrent callers are grouped by a {@link GroupCommitWriter} and written
+ * under a single tail lock.</p>
+ *
+ * <p>The locks serialize the file operations themselves. They do not make a copy of the file
+ * that a process keeps in memory current: a store that loads a file once and later writes it
+ * back whole, such as the journal-backed stores compacted by {@link AppendOnlyJournal}, must
+ * be owned by one process, which that class enforces.</p>
+ *
+ * <p>File locks belong to the whole process, so each region is also guarded by an in-process
+ * lock and the shared content lock is taken once on behalf of all reading threads. Operations
+ * on the same file must not be nested.</p>
+ *
+ * <p>Waiting for a file lock polls with {@code tryLock} instead of blocking. The kernel tracks
+ * POSIX locks per process, so a blocking wait by one thread while another thread of the same
+ * process holds a different region can be reported as a deadlock that does not exist.</p>
+ */
+public final class SharedCsvFile {
+    private static final Map<Path, SharedCsvFile> FILES = new ConcurrentHashMap<>();
+    private static final long CONTENT_REGION = 0;
+    private static final long TAIL_REGION = 1;
+    private static final long MAX_LOCK_BACKOFF_MS = 16;
+
+    /**
+     * Changes the lines of a file in place while the file is locked exclusively.
+     */
+    @FunctionalInterface
+    public interface LinesUpdate {
+        /**
+         * Changes the lines of the file, including its header.
+         *
+         * @param lines The current lines of the file; changed in place
+         * @return true to write the changed lines back; false to leave the file untouched
+         * @throws IOException if the update cannot be applied
+         */
+        boolean apply(List<String> lines) throws IOException;
+    }
+
+    private final Path path;
+    private final Path lockPath;
+    private final Path tempPath;
+    private final ReentrantReadWriteLock contentLock = new ReentrantReadWriteLock();
+    private final ReentrantLock tailLock = new ReentrantLock();
+    private final GroupCommitWriter appender;
+    private FileChannel lockChannel;
+    private FileLock sharedContentLock;
+    private int sharedHolders;
+
+    private SharedCsvFile(Path path) {
+        this.path = path;
+        this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+        this.tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.appender = new GroupCommitWriter("group-commit-" + path.getFileName(), this::appendGroup);
+    }
+
+    /**
+     * Returns the shared handle for a CSV file, creating it on first use.
+     *
+     * @param path The path of the CSV file
+     * @return The handle for the file
+     */
+    public static SharedCsvFile of(String path) {
+        return FILES.computeIfAbsent(Paths.get(path).toAbsolutePath(), SharedCsvFile::new);
+    }
+
+    /**
+     * Reads every line of the file, including the header, under a shared lock.
+     *
+     * @return The lines of the file, or an empty list if it does not exist yet
+     * @throws IOException if the file cannot be read or locked
+     */
+    public List<String> readLines() throws IOException {
+        lockContentShared();
+        try {
+            return readUnlocked();
+        } finally {
+            unlockContentShared();
+        }
+    }
+
+    /**
+     * Reads, changes and atomically replaces the file while holding it exclusively, so no
+     * other thread or process can read a partial file or write in between.
+     *
+     * @param update Changes the lines in place
+     * @return true if the file was rewritten; false if the update left it untouched
+     * @throws IOException if the file cannot be read, written or locked
+     */
+    public boolean update(LinesUpdate update) throws IOException {
+        contentLock.writeLock().lock();
+        try {
+            FileLock lock = acquire(CONTENT_REGION, false);
+            try {
+                List<String> lines = readUnlocked();
+                if (!update.apply(lines)) {
+                    return false;
+                }
+                commit(lines);
+                return true;
+            } finally {
+                lock.release();
+            }
+        } finally {
+            contentLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Atomically replaces the whole file while holding it exclusively, without reading it first.
+     *
+     * @param lines The new lines of the file, including its header
+     * @throws IOException if the file cannot be written or locked
+     */
+    public void replace(List<String> lines) throws IOException {
+        contentLock.writeLock().lock();
+        try {
+            FileLock lock = acquire(CONTENT_REGION, false);
+            try {
+                commit(lines);
+            } finally {
+                lock.release();
+            }
+        } finally {
+            contentLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends lines to the end of the file, creating it if necessary, and waits until they are
+     * written. Only the tail of the file is locked exclusively; readers are not blocked.
+     *
+     * @param lines The lines to append
+     * @throws IOException if the file cannot be written or locked
+     */
+    public void append(String... lines) throws IOException {
+        GroupCommitWriter.await(appendAsync(lines));
+    }
+
+    /**
+     * Queues lines to be appended to the end of the file. Appends from concurrent callers are
+     * written together as one group, taking the file locks and opening the file once per group.
+     *
+     * @param lines The lines to append
+     * @return A future that completes once the lines have been written
+     */
+    public CompletableFuture<Void> appendAsync(String... lines) {
+        return appender.append(lines);
+    }
+
+    /**
+     * Appends one group of lines while holding the shared content lock and the exclusive tail lock.
+     */
+    private void appendGroup(ByteBuffer group, boolean force) throws IOException {
+        lockContentShared();
+        tailLock.lock();
+        try {
+            FileLock lock = acquire(TAIL_REGION, false);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (group.hasRemaining()) {
+                    channel.write(group);
+                }
+                if (force) {
+                    channel.force(false);
+                }
+            } finally {
+                lock.release();
+            }
+        } finally {
+            tailLock.unlock();
+            unlockContentShared();
+        }
+    }
+
+    private List<String> readUnlocked() throws IOException {
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the lines to the temporary file, forces them to disk and renames the temporary file over the CSV file.
+     */
+    private void commit(List<String> lines) throws IOException {
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+            channel.force(true);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Make the rename itself durable; not every platform allows opening a directory
+        try (FileChannel directory = FileChannel.open(path.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // The rename is still atomic, it may just not be flushed yet
+        }
+    }
+
+    /**
+     * Takes the in-process read lock, and the shared content lock for the first reading thread.
+     */
+    private void lockContentShared() throws IOException {
+        contentLock.readLock().lock();
+        synchronized (this) {
+            if (sharedHolders == 0) {
+                try {
+                    sharedContentLock = acquire(CONTENT_REGION, true);
+                } catch (IOException | RuntimeException e) {
+                    contentLock.readLock().unlock();
+                    throw e;
+                }
+            }
+            sharedHolders++;
+        }
+    }
+
+    /**
+     * Releases the in-process read lock, and the shared content lock once the last reading thread is done.
+     */
+    private void unlockContentShared() throws IOException {
+        try {
+            synchronized (this) {
+                if (--sharedHolders == 0) {
+                    FileLock lock = sharedContentLock;
+                    sharedContentLock = null;
+                    lock.release();
+                }
+            }
+        } finally {
+            contentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes a lock on one region of the lock file, retrying with a growing pause while another process holds it.
+     */
+    private FileLock acquire(long region, boolean shared) throws IOException {
+        for (long backoff = 1; ; backoff = Math.min(backoff * 2, MAX_LOCK_BACKOFF_MS)) {
+            FileLock lock = lockChannel().tryLock(region, 1, shared);
+            if (lock != null) {
+                return lock;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + lockPath.getFileName());
+            }
+        }
+    }
+
+    /**
+     * Opens the lock file on first use and keeps it open, since closing it would release every lock held on it.
+     */
+    private synchronized FileChannel lockChannel() throws IOException {
+        if (lockChannel == null) {
+            lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return lockChannel;
+    }
+}
@@ -0,0 +1,129 @@
+package storage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The StringDictionary class maps repeated string values, such as IDs and status names, to small
+ * int codes and back. In memory it also serves as a pool: every occurrence of a value decodes to
+ * the same String instance, so a value repeated across many rows is stored once.
+ *
+ * <p>The dictionary is persisted alongside the data that uses its codes, as a text file with one
+ * value per line where the line number is the code. Codes are never reassigned, so the file only
+ * grows: {@link #save} appends the values added since the last save. It must be saved before any
+ * data containing new codes is written, so every code on disk can always be decoded.</p>
+ */
+public final class StringDictionary {
+    private final File file;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private int saved;
+
+    private StringDictionary(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads a dictionary from its file, or starts an empty one if the file does not exist yet.
+     *
+     * @param filePath The path of the dictionary file
+     * @return The dictionary
+     * @throws IOException if the file exists but cannot be read
+     */
+    public static StringDictionary load(String filePath) throws IOException {
+        StringDictionary dictionary = new StringDictionary(new File(filePath));
+        if (dictionary.file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(dictionary.file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    dictionary.add(line);
+                }
+            }
+        }
+        dictionary.saved = dictionary.values.size();
+        return dictionary;
+    }
+
+    private int add(String value) {
+        int code = values.size();
+        values.add(value);
+        codes.putIfAbsent(value, code);
+        return code;
+    }
+
+    /**
+     * Returns the code of a value, adding the value if it is new.
+     *
+     * @param value The value to encode; must not contain a line break
+     * @return The code of the value
+     * @throws IllegalArgumentException if the value contains a line break
+     */
+    public synchronized int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Dictionary values cannot contain line breaks");
+        }
+        return add(value);
+    }
+
+    /**
+     * Returns the value of a code.
+     *
+     * @param code The code to decode
+     * @return The shared instance of the value
+     * @throws IllegalArgumentException if the code is not in the dictionary
+     */
+    public synchronized String decode(int code) {
+        if (code < 0 || code >= values.size()) {
+            throw new IllegalArgumentException("Unknown dictionary code: " + code);
+        }
+        return values.get(code);
+    }
+
+    /**
+     * Returns the shared instance of a value, adding the value if it is new.
+     *
+     * @param value The value to look up
+     * @return The instance of the value kept by the dictionary
+     */
+    public synchronized String canonical(String value) {
+        return values.get(encode(value));
+    }
+
+    /**
+     * Gets the number of values in the dictionary.
+     *
+     * @return The number of values
+     */
+    public synchronized int size() {
+        return values.size();
+    }
+
+    /**
+     * Appends the values added since the last save to the dictionary file and forces them to disk.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (saved == values.size()) {
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (int i = saved; i < values.size(); i++) {
+                writer.write(values.get(i));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        saved = values.size();
+    }
+}
@@ -0,0 +1,39 @@
+package storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The StripedLocks class maps keys onto a fixed set of locks. Operations on the same key are
+ * always serialized, while operations on different keys usually take different locks and can
+ * run in parallel. The number of locks stays fixed no matter how many keys are used.
+ */
+public final class StripedLocks {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * Creates a set of striped locks.
+     *
+     * @param stripes The minimum number of locks; rounded up to a power of two
+     */
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the lock guarding a key.
+     *
+     * @param key The key to lock
+     * @return The lock shared by every key in the same stripe
+     */
+    public Lock get(Object key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & mask];
+    }
+}
@@ -6,6 +6,10 @@
  */
 package usermain;
 
+import appointment.Appointment;
+import appointment.AppointmentRepository;
+import storage.MappedCsvFile;
+import storage.SharedCsvFile;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,13 +18,12 @@ import enums.PrescriptionStatus;
 import enums.ReplenishmentRequestStatus;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 public class Administrator {
 
     private static final String STAFF_FILE_PATH = "resources/Staff.csv";
     private static final String USER_FILE_PATH = "resources/User.csv";
-    private static final String APPOINTMENT_FILE_PATH = "resources/Appointment.csv";
-    private static final String MEDICINE_FILE_PATH = "resources/Medicine_List.csv";
     private static final String APPOINTMENT_RECORD_FILE = "resources/AppointmentRecord.csv";
     private static final String REPLENISHMENT_REQUEST_FILE = "resources/ReplenishmentRequest.csv";
 
@@ -44,56 +47,34 @@ public class Administrator {
      * @param appointmentID The ID of the appointment to be viewed
      */
     public void viewAppointmentDetails(String appointmentID) {
-        boolean appointmentFound = false;
-
-        // Read from Appointment.csv
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE_PATH))) {
-            String line;
-            System.out.println("Appointment Details:");
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                // Check if the appointment ID matches
-                if (data[0].equals(appointmentID)) {
-                    System.out.println("Appointment ID: " + data[0]);
-                    System.out.println("Doctor ID: " + data[1]);
-                    System.out.println("Patient ID: " + data[2]);
-                    System.out.println("Date: " + data[3]);
-                    System.out.println("Time Slot: " + data[4]);
-                    System.out.println("Status: " + data[5]);
-                    appointmentFound = true;
-                    break;
-                }
-            }
-            if (!appointmentFound) {
-                System.out.println("No appointment found with ID: " + appointmentID);
-                return;
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        // Look up the appointment in the shared appointment repository
+        Appointment appointment = AppointmentRepository.getInstance().findById(appointmentID);
+        System.out.println("Appointment Details:");
+        if (appointment == null) {
+            System.out.println("No appointment found with ID: " + appointmentID);
+            return;
         }
-
-        // Read from AppointmentRecord.csv
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_RECORD_FILE))) {
-            String line;
+        System.out.println("Appointment ID: " + appointment.getAppointmentID());
+        System.out.println("Doctor ID: " + appointment.getDoctorID());
+        System.out.println("Patient ID: " + appointment.getPatientID());
+        System.out.println("Date: " + appointment.getDate());
+        System.out.println("Time Slot: " + appointment.getTimeSlot());
+        System.out.println("Status: " + appointment.getStatus());
+
+        // Look up the record in the memory-mapped AppointmentRecord.csv
+        try {
+            String[] data = MappedCsvFile.of(APPOINTMENT_RECORD_FILE).findFirst(0, appointmentID);
             System.out.println("\nAppointment Record Details:");
-            boolean recordFound = false;
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                // Check if the appointment ID matches
-                if (data[0].equals(appointmentID)) {
-                    System.out.println("Diagnosis: " + data[1]);
-                    System.out.println("Prescription Medicine: " + data[2]);
-                    System.out.println("Prescription Quantity: " + data[3]);
-                    System.out.println("Prescription Status: " + data[4]);
-                    System.out.println("Treatment Plan: " + data[5]);
-                    System.out.println("Date: " + data[6]);
-                    System.out.println("Type of Service: " + data[7]);
-                    System.out.println("Consultation Notes: " + data[8]);
-                    recordFound = true;
-                    break;
-                }
-            }
-            if (!recordFound) {
+            if (data != null && data.length >= 9) {
+                System.out.println("Diagnosis: " + data[1]);
+                System.out.println("Prescription Medicine: " + data[2]);
+                System.out.println("Prescription Quantity: " + data[3]);
+                System.out.println("Prescription Status: " + data[4]);
+                System.out.println("Treatment Plan: " + data[5]);
+                System.out.println("Date: " + data[6]);
+                System.out.println("Type of Service: " + data[7]);
+                System.out.println("Consultation Notes: " + data[8]);
+            } else {
                 System.out.println("No appointment record found with ID: " + appointmentID);
             }
         } catch (IOException e) {
@@ -112,19 +93,12 @@ public class Administrator {
      * @throws IOException if there is an error writing to the file
      */
     public void addStaff(String id, String name, String role, String gender, int age) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(STAFF_FILE_PATH, true))) {
-            bw.write(id + "," + name + "," + role + "," + gender + "," + age);
-            bw.newLine();  // Add a newline at the end
-            System.out.println("Staff member added successfully.");
-        }
+        SharedCsvFile.of(STAFF_FILE_PATH).append(id + "," + name + "," + role + "," + gender + "," + age);
+        System.out.println("Staff member added successfully.");
 
         // Add corresponding entry to User.csv
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(USER_FILE_PATH, true))) {
-            String defaultPassword = "password"; // Define a default password
-            bw.write(id + "," + defaultPassword + "," + role + "," + name);
-            bw.newLine();
-            //System.out.println("Staff member added successfully.");
-        }
+        String defaultPassword = "password"; // Define a default password
+        SharedCsvFile.of(USER_FILE_PATH).append(id + "," + defaultPassword + "," + role + "," + name);
     }
 
     /**
@@ -138,47 +112,27 @@ public class Administrator {
      * @throws IOException if there is an error reading or writing to the file
      */
     public void updateStaff(String id, String newName, String newRole, String newGender, int newAge) throws IOException {
-        List<String[]> staffList = readCSV(STAFF_FILE_PATH);
-        boolean staffFound = false;
-
         // Find the staff member by ID and update details in Staff.csv
-        for (String[] staff : staffList) {
-            if (staff[0].equals(id)) {
-                staff[1] = newName;
-                staff[2] = newRole;
-                staff[3] = newGender;
-                staff[4] = String.valueOf(newAge);
-                staffFound = true;
-                break;
-            }
-        }
+        boolean staffFound = updateRow(STAFF_FILE_PATH, id, staff -> {
+            staff[1] = newName;
+            staff[2] = newRole;
+            staff[3] = newGender;
+            staff[4] = String.valueOf(newAge);
+            return true;
+        });
 
         if (staffFound) {
-            writeStaffCSV(staffList, STAFF_FILE_PATH);
             System.out.println("Staff member updated successfully.");
         } else {
             System.out.println("Staff member with ID " + id + " not found.");
         }
 
         // Update corresponding entry in User.csv
-        List<String[]> userList = readCSV(USER_FILE_PATH);
-        boolean userFound = false;
-
-        for (String[] user : userList) {
-            if (user[0].equals(id)) {
-                user[2] = newRole;
-                user[3] = newName;
-                userFound = true;
-                break;
-            }
-        }
-
-        if (userFound) {
-            writeUserCSV(userList, USER_FILE_PATH);
-            //System.out.println("Staff member updated successfully.");
-        } else {
-            //System.out.println("Staff member with ID " + id + " not found.");
-        }
+        updateRow(USER_FILE_PATH, id, user -> {
+            user[2] = newRole;
+            user[3] = newName;
+            return true;
+        });
     }
 
     /**
@@ -188,43 +142,17 @@ public class Administrator {
      * @throws IOException if there is an error reading or writing to the file
      */
     public void removeStaff(String id) throws IOException {
-        List<String[]> staffList = readCSV(STAFF_FILE_PATH);
-        boolean staffFound = false;
-
         // Find and remove the staff member by ID in Staff.csv
-        for (int i = 0; i < staffList.size(); i++) {
-            if (staffList.get(i)[0].equals(id)) {
-                staffList.remove(i);
-                staffFound = true;
-                break;
-            }
-        }
+        boolean staffFound = updateRow(STAFF_FILE_PATH, id, staff -> false);
 
         if (staffFound) {
-            writeStaffCSV(staffList, STAFF_FILE_PATH);
             System.out.println("Staff member removed from successfully.");
         } else {
             System.out.println("Staff member with ID " + id + " not found in.");
         }
 
         // Remove corresponding entry in User.csv
-        List<String[]> userList = readCSV(USER_FILE_PATH);
-        boolean userFound = false;
-
-        for (int i = 0; i < userList.size(); i++) {
-            if (userList.get(i)[0].equals(id)) {
-                userList.remove(i);
-                userFound = true;
-                break;
-            }
-        }
-
-        if (userFound) {
-            writeUserCSV(userList, USER_FILE_PATH);
-            //System.out.println("Staff member removed successfully.");
-        } else {
-            //System.out.println("Staff member with ID " + id + " not found.");
-        }
+        updateRow(USER_FILE_PATH, id, user -> false);
     }
 
 
@@ -234,17 +162,9 @@ public class Administrator {
      * @throws IOException if there is an error reading the file
      */
     public void viewMedicationInventory() throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(MEDICINE_FILE_PATH))) {
-            String line;
-            boolean isFirstLine = true; // To skip the header line
-            System.out.println("Medication Inventory:");
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
-                }
-                System.out.println(line);
-            }
+        System.out.println("Medication Inventory:");
+        for (String[] medicine : MedicineInventory.getInstance().snapshot()) {
+            System.out.println(String.join(",", medicine));
         }
     }
 
@@ -256,19 +176,9 @@ public class Administrator {
      * @throws IOException if there is an error reading or writing to the file
      */
     public void updateMedicationStock(String medicineName, int newStockLevel) throws IOException {
-        List<String[]> medicineList = readCSV(MEDICINE_FILE_PATH);
-        boolean medicineFound = false;
-
-        for (String[] medicine : medicineList) {
-            if (medicine[0].equalsIgnoreCase(medicineName)) {
-                medicine[1] = String.valueOf(newStockLevel); // Update stock level
-                medicineFound = true;
-                break;
-            }
-        }
+        boolean medicineFound = MedicineInventory.getInstance().setStock(medicineName, newStockLevel);
 
         if (medicineFound) {
-            writeMedicineCSV(medicineList, MEDICINE_FILE_PATH);
             System.out.println("Stock level for " + medicineName + " updated to " + newStockLevel);
         } else {
             System.out.println("Medication " + medicineName + " not found.");
@@ -283,19 +193,9 @@ public class Administrator {
      * @throws IOException if there is an error reading or writing to the file
      */
     public void updateLowStockLevel(String medicineName, int newLowStockLevel) throws IOException {
-        List<String[]> medicineList = readCSV(MEDICINE_FILE_PATH);
-        boolean medicineFound = false;
-
-        for (String[] medicine : medicineList) {
-            if (medicine[0].equalsIgnoreCase(medicineName)) {
-                medicine[2] = String.valueOf(newLowStockLevel); // Update low stock level
-                medicineFound = true;
-                break;
-            }
-        }
+        boolean medicineFound = MedicineInventory.getInstance().setLowStockAlert(medicineName, newLowStockLevel);
 
         if (medicineFound) {
-            writeMedicineCSV(medicineList, MEDICINE_FILE_PATH);
             System.out.println("Low stock level for " + medicineName + " updated to " + newLowStockLevel);
         } else {
             System.out.println("Medication " + medicineName + " not found.");
@@ -303,95 +203,31 @@ public class Administrator {
     }
 
     /**
-     * Reads data from a CSV file and converts it into a list of string arrays.
-     * Each array represents a row in the CSV file, with its elements corresponding to the columns.
+     * Changes or removes the first row of a CSV file whose first column matches a key.
+     * The header is kept, and the file is rewritten under an exclusive lock so concurrent
+     * sessions and processes never overwrite each other's changes.
      *
-     * @param filePath The path to the CSV file to be read
-     * @return A list of string arrays, where each array represents a row in the CSV file
-     * @throws IOException if there is an error reading the file
+     * @param filePath The path to the CSV file to be updated
+     * @param key      The value of the first column to look for
+     * @param change   Changes the row in place and returns true, or returns false to remove the row
+     * @return true if a matching row was found; false otherwise
+     * @throws IOException if there is an error reading or writing the file
      */
-    private List<String[]> readCSV(String filePath) throws IOException {
-        List<String[]> staffList = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            boolean isFirstLine = true; // Skip the header
-
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip the header
+    private boolean updateRow(String filePath, String key, Predicate<String[]> change) throws IOException {
+        return SharedCsvFile.of(filePath).update(lines -> {
+            for (int i = 1; i < lines.size(); i++) { // Skip the header
+                String[] row = lines.get(i).split(",");
+                if (row[0].equals(key)) {
+                    if (change.test(row)) {
+                        lines.set(i, String.join(",", row));
+                    } else {
+                        lines.remove(i);
+                    }
+                    return true;
                 }
-                String[] staff = line.split(",");
-                staffList.add(staff);
             }
-        }
-        return staffList;
-    }
-
-    /**
-     * Writes an updated list of medicines back to a CSV file.
-     * The method ensures the file includes the correct header and updated content.
-     *
-     * @param medicineList A list of string arrays representing the updated medicine data
-     * @param filePath     The path to the CSV file to be updated
-     * @throws IOException if there is an error writing to the file
-     */
-    private void writeMedicineCSV(List<String[]> medicineList, String filePath) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath))) {
-            // Write header first for the medicine list
-            bw.write("Medicine Name,Initial Stock,Low Stock Level Alert");
-            bw.newLine();
-
-            // Write the rest of the medicine list
-            for (String[] medicine : medicineList) {
-                bw.write(String.join(",", medicine));
-                bw.newLine();
-            }
-        }
-    }
-
-    /**
-     * Writes an updated list of staff members back to a CSV file.
-     * The method ensures the file includes the correct header and updated content.
-     *
-     * @param staffList A list of string arrays representing the updated staff data
-     * @param filePath  The path to the CSV file to be updated
-     * @throws IOException if there is an error writing to the file
-     */
-    private void writeStaffCSV(List<String[]> staffList, String filePath) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath))) {
-            // Write header first for the staff list
-            bw.write("Staff ID,Name,Role,Gender,Age");
-            bw.newLine();
-
-            // Write the rest of the staff list
-            for (String[] staff : staffList) {
-                bw.write(String.join(",", staff));
-                bw.newLine();
-            }
-        }
-    }
-
-    /**
-     * Writes an updated list of users back to the User CSV file.
-     * The method ensures the file includes the correct header and updated content.
-     *
-     * @param userList A list of string arrays representing the updated user data
-     * @param filePath The path to the User CSV file to be updated
-     * @throws IOException if there is an error writing to the file
-     */
-    private void writeUserCSV(List<String[]> userList, String filePath) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath))) {
-            // Write header first for the user list
-            bw.write("ID,Password,Role,Name");
-            bw.newLine();
-
-            // Write the rest of the user list
-            for (String[] user : userList) {
-                bw.write(String.join(",", user));
-                bw.newLine();
-            }
-        }
+            return false;
+        });
     }
 
     /**
@@ -400,18 +236,16 @@ public class Administrator {
      */
     public void approveReplenishmentRequests() {
         List<String[]> replenishmentRequests = new ArrayList<>();
-        List<String[]> updatedRequests = new ArrayList<>();
-        Map<String, Integer> medicineStock = loadMedicineStock();
+        Set<String> approvedRequests = new HashSet<>();
+        MedicineInventory inventory = MedicineInventory.getInstance();
 
         // Load pending replenishment requests
-        try (BufferedReader reader = new BufferedReader(new FileReader(REPLENISHMENT_REQUEST_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
+        try {
+            for (String line : SharedCsvFile.of(REPLENISHMENT_REQUEST_FILE).readLines()) {
                 String[] data = line.split(",");
-                if (data[3].equalsIgnoreCase(PrescriptionStatus.PENDING.name())) {
+                if (data.length >= 4 && data[3].equalsIgnoreCase(PrescriptionStatus.PENDING.name())) {
                     replenishmentRequests.add(data);
                 }
-                updatedRequests.add(data); // Store for later updates
             }
         } catch (IOException e) {
             System.err.println("Error reading ReplenishmentRequest.csv: " + e.getMessage());
@@ -445,12 +279,10 @@ public class Administrator {
             }
 
             if (approval.equals("Y")) {
-                request[3] = ReplenishmentRequestStatus.APPROVED.name(); // Update status to approved
+                approvedRequests.add(requestId);
 
-                // Update the medicine stock by adding the requested quantity to the original stock
-                if (medicineStock.containsKey(medicineName)) {
-                    int currentStock = medicineStock.get(medicineName);
-                    medicineStock.put(medicineName, currentStock + quantity);// Add replenishment quantity
+                // The medicine stock is increased by the requested quantity once the approval is saved
+                if (inventory.hasMedicine(medicineName)) {
                     System.out.println("Request approved successfully for " + medicineName + " with quantity " + quantity + ".");
                 } else {
                     System.out.println("Medicine " + medicineName + " not found in the stock list.");
@@ -458,75 +290,70 @@ public class Administrator {
             }
         }
 
-        // Write updated requests back to ReplenishmentRequest.csv
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(REPLENISHMENT_REQUEST_FILE))) {
-            for (String[] data : updatedRequests) {
-                writer.write(String.join(",", data));
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            System.err.println("Error writing to ReplenishmentRequest.csv: " + e.getMessage());
+        if (!approvedRequests.isEmpty()) {
+            approveReplenishmentRequests(approvedRequests);
         }
-
-        // Write updated stock back to Medicine_List.csv
-        saveUpdatedMedicineStock(medicineStock);
     }
 
     /**
-     * Loads the current stock of medications from the CSV file into a map.
+     * Approves the given replenishment requests without prompting and adds their quantities to the stock.
+     * Requests that are unknown or no longer pending, for example because another administrator
+     * handled them in the meantime, are skipped, and so are requests whose quantity is not a
+     * positive number; those stay pending.
      *
-     * @return A map containing medication names as keys and stock levels as values
+     * @param requestIDs The IDs of the requests to approve
+     * @return The IDs of the requests that were approved
      */
-    private Map<String, Integer> loadMedicineStock() {
-        Map<String, Integer> stock = new HashMap<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(MEDICINE_FILE_PATH))) {
-            String line;
-            reader.readLine(); // Skip header line
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                String medicineName = data[0].trim();
-                int initialStock = Integer.parseInt(data[1].trim());
-                stock.put(medicineName, initialStock);
-            }
+    public List<String> approveReplenishmentRequests(Set<String> requestIDs) {
+        MedicineInventory inventory = MedicineInventory.getInstance();
+
+        // Mark the approved requests in ReplenishmentRequest.csv
+        List<String[]> approved = new ArrayList<>();
+        try {
+            SharedCsvFile.of(REPLENISHMENT_REQUEST_FILE).update(lines -> {
+                boolean changed = false;
+                for (int i = 0; i < lines.size(); i++) {
+                    String[] data = lines.get(i).split(",");
+                    if (data.length >= 4 && requestIDs.contains(data[0])
+                            && data[3].equalsIgnoreCase(PrescriptionStatus.PENDING.name())) {
+                        // Check the quantity before approving, so every approved request can reach the stock
+                        if (parseQuantity(data[2]) <= 0) {
+                            System.out.println("Request " + data[0] + " has an invalid quantity and was not approved: " + data[2]);
+                            continue;
+                        }
+                        data[3] = ReplenishmentRequestStatus.APPROVED.name(); // Update status to approved
+                        lines.set(i, String.join(",", data));
+                        approved.add(data);
+                        changed = true;
+                    }
+                }
+                return changed;
+            });
         } catch (IOException e) {
-            System.err.println("Error reading Medicine_List.csv: " + e.getMessage());
+            System.err.println("Error writing to ReplenishmentRequest.csv: " + e.getMessage());
+            return List.of();
+        }
+
+        // Add the approved quantities to the stock
+        List<String> approvedIDs = new ArrayList<>(approved.size());
+        for (String[] request : approved) {
+            inventory.replenish(request[1].trim(), parseQuantity(request[2]), request[0]);
+            approvedIDs.add(request[0]);
         }
-        return stock;
+        return approvedIDs;
     }
 
     /**
-     * Saves the updated stock levels of medications back to the CSV file.
+     * Reads the quantity of a replenishment request.
      *
-     * @param medicineStock A map containing updated medication stock levels
+     * @param quantity The quantity field of the request
+     * @return The quantity, or -1 if it is not a number
      */
-    private void saveUpdatedMedicineStock(Map<String, Integer> medicineStock) {
-        List<String[]> updatedStock = new ArrayList<>();
-
-        // Read existing data and update stock values
-        try (BufferedReader reader = new BufferedReader(new FileReader(MEDICINE_FILE_PATH))) {
-            String line;
-            updatedStock.add(reader.readLine().split(",")); // Add header
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                String medicineName = data[0].trim();
-                if (medicineStock.containsKey(medicineName)) {
-                    data[1] = String.valueOf(medicineStock.get(medicineName)); // Update stock value by adding replenishment quantity
-                }
-                updatedStock.add(data);
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Medicine_List.csv for updates: " + e.getMessage());
-            return;
-        }
-
-        // Write the updated data back to Medicine_List.csv
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(MEDICINE_FILE_PATH))) {
-            for (String[] data : updatedStock) {
-                writer.write(String.join(",", data));
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            System.err.println("Error writing to Medicine_List.csv: " + e.getMessage());
+    private static int parseQuantity(String quantity) {
+        try {
+            return Integer.parseInt(quantity.trim());
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,349 @@
+package usermain;
+
+import appointment.Appointment;
+import appointment.AppointmentRepository;
+import appointment.AppointmentService;
+import appointment.BookingResult;
+import appointment.DoctorAvailabilityService;
+import enums.AppointmentStatus;
+import enums.UserRole;
+import storage.CsvTokenizer;
+import java.io.*;
+import java.util.*;
+
+/**
+ * The BatchRunner class runs the Hospital Management System without prompts from a script of
+ * commands, for example to replay a day's traffic for capacity planning or to run nightly bulk
+ * operations. Each command is sent straight to the service layer as the user who logged in
+ * last, and its result is reported on one line.
+ *
+ * <p>Everything the commands print is buffered and written in large blocks. When the script
+ * ends, the number of commands of each type, how many failed and how long they took are
+ * printed as a summary.</p>
+ *
+ * <p>A script has one command per line with comma-separated fields, so no field may contain a
+ * comma; blank lines and lines
+ * starting with {@code #} are ignored:</p>
+ * <pre>
+ * login,&lt;userID&gt;,&lt;password&gt;
+ * book,&lt;doctorID&gt;,&lt;DD-MM-YY&gt;,&lt;HH:MM&gt;                                    (patient)
+ * pay,&lt;appointmentID&gt;,&lt;feedback&gt;                                           (patient)
+ * accept,&lt;appointmentID&gt;                                                    (doctor)
+ * decline,&lt;appointmentID&gt;                                                   (doctor)
+ * record,&lt;appointmentID&gt;,&lt;diagnosis&gt;,&lt;medicine&gt;,&lt;quantity&gt;,&lt;treatmentPlan&gt;,&lt;typeOfService&gt;,&lt;notes&gt; (doctor)
+ * dispense,&lt;appointmentID&gt;                                                  (pharmacist)
+ * approve,&lt;requestID&gt;                                                       (administrator)
+ * logout
+ * </pre>
+ */
+public final class BatchRunner {
+    private static final String USER_FILE = "resources/User.csv";
+    private static final String DEFAULT_PASSWORD = "password";
+    private static final int OUTPUT_BUFFER_BYTES = 1 << 16;
+
+    /**
+     * A command that could not be carried out, with the reason reported for it.
+     */
+    private static final class CommandFailedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private CommandFailedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The count and timing of the commands of one type.
+     */
+    private static final class CommandStats {
+        private int count;
+        private int failed;
+        private long totalNanos;
+        private long maxNanos;
+    }
+
+    private final Map<String, CommandStats> stats = new LinkedHashMap<>();
+    private final AppointmentService appointmentService = new AppointmentService();
+    private final AppointmentRepository appointmentRepository = AppointmentRepository.getInstance();
+    private String userID;
+    private UserRole role;
+    private User user;
+    private Administrator administrator;
+    private Billing billing;
+
+    private BatchRunner() {
+    }
+
+    /**
+     * Runs a script of commands with buffered output and prints the timing summary.
+     *
+     * @param scriptPath The path of the script file
+     * @throws IOException if the script cannot be read
+     */
+    public static void run(String scriptPath) throws IOException {
+        PrintStream console = System.out;
+        PrintStream buffered = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), OUTPUT_BUFFER_BYTES), false);
+        System.setOut(buffered);
+        try (BufferedReader reader = new BufferedReader(new FileReader(scriptPath))) {
+            new BatchRunner().runScript(reader);
+        } finally {
+            buffered.flush();
+            System.setOut(console);
+        }
+    }
+
+    private void runScript(BufferedReader reader) throws IOException {
+        long started = System.nanoTime();
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String text = line.trim();
+            if (text.isEmpty() || text.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = text.split(",", -1);
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = fields[i].trim();
+            }
+            String command = fields[0].toLowerCase(Locale.ROOT);
+
+            String result;
+            boolean failed = false;
+            long begin = System.nanoTime();
+            try {
+                result = execute(command, fields);
+            } catch (CommandFailedException e) {
+                result = "FAILED: " + e.getMessage();
+                failed = true;
+            } catch (RuntimeException e) {
+                result = "ERROR: " + e;
+                failed = true;
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            CommandStats commandStats = stats.computeIfAbsent(command, key -> new CommandStats());
+            commandStats.count++;
+            commandStats.totalNanos += elapsed;
+            commandStats.maxNanos = Math.max(commandStats.maxNanos, elapsed);
+            if (failed) {
+                commandStats.failed++;
+            }
+            System.out.println("[" + lineNumber + "] " + text + " -> " + result);
+        }
+        printSummary(System.nanoTime() - started);
+    }
+
+    /**
+     * Carries out one command.
+     *
+     * @return A short description of the result
+     * @throws CommandFailedException if the command could not be carried out
+     */
+    private String execute(String command, String[] fields) throws CommandFailedException {
+        switch (command) {
+            case "login":
+                return login(fields);
+            case "logout":
+                userID = null;
+                role = null;
+                user = null;
+                administrator = null;
+                billing = null;
+                return "OK";
+            case "book":
+                return book(fields);
+            case "pay":
+                return pay(fields);
+            case "accept":
+            case "decline":
+                return acceptOrDecline(fields, command.equals("accept"));
+            case "record":
+                return record(fields);
+            case "dispense":
+                return dispense(fields);
+            case "approve":
+                return approve(fields);
+            default:
+                throw new CommandFailedException("unknown command");
+        }
+    }
+
+    /**
+     * Logs in as a user from User.csv. Users still on the default password must change it interactively first.
+     */
+    private String login(String[] fields) throws CommandFailedException {
+        expectFields(fields, 3, "login,<userID>,<password>");
+        String[] account = null;
+        try (CsvTokenizer reader = CsvTokenizer.open(USER_FILE)) {
+            while (reader.nextRow()) {
+                if (reader.fieldEquals(0, fields[1]) && reader.fieldEquals(1, fields[2])) {
+                    account = reader.fields();
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading User.csv: " + e.getMessage());
+        }
+        if (account == null || account.length < 4) {
+            throw new CommandFailedException("invalid user ID or password");
+        }
+        if (fields[2].equals(DEFAULT_PASSWORD)) {
+            throw new CommandFailedException("the default password must be changed before logging in");
+        }
+
+        UserRole loginRole;
+        try {
+            loginRole = UserRole.valueOf(account[2]);
+        } catch (IllegalArgumentException e) {
+            throw new CommandFailedException("role not recognized");
+        }
+        userID = account[0];
+        role = loginRole;
+        user = null;
+        administrator = null;
+        billing = null;
+        switch (loginRole) {
+            case DOCTOR:
+                user = new Doctor(userID, fields[2], account[2], account[3], appointmentService, new DoctorAvailabilityService());
+                break;
+            case PHARMACIST:
+                user = new Pharmacist(userID, fields[2], account[2], account[3]);
+                break;
+            case ADMINISTRATOR:
+                administrator = new Administrator();
+                break;
+            default:
+                billing = new Billing(userID);
+                break;
+        }
+        return "logged in as " + loginRole;
+    }
+
+    private String book(String[] fields) throws CommandFailedException {
+        expectRole(UserRole.PATIENT);
+        expectFields(fields, 4, "book,<doctorID>,<date>,<time>");
+        BookingResult result = appointmentService.scheduleAppointment(userID, fields[1], fields[2], fields[3]);
+        if (!result.isSuccessful()) {
+            throw new CommandFailedException(result.getOutcome().name());
+        }
+        return result.getOutcome() + " " + result.getAppointmentID() + " " + result.getDate() + " " + result.getTimeSlot();
+    }
+
+    private String pay(String[] fields) throws CommandFailedException {
+        expectRole(UserRole.PATIENT);
+        expectFields(fields, 3, "pay,<appointmentID>,<feedback>");
+        try {
+            // A bill is generated in the background after dispensing, so wait for any still queued
+            BillingPipeline.getInstance().awaitBilled();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandFailedException("interrupted");
+        }
+        if (!billing.payBill(fields[1], fields[2])) {
+            throw new CommandFailedException("no pending bill for this appointment, or the feedback is not valid");
+        }
+        return "PAID";
+    }
+
+    private String acceptOrDecline(String[] fields, boolean accept) throws CommandFailedException {
+        expectRole(UserRole.DOCTOR);
+        expectFields(fields, 2, (accept ? "accept" : "decline") + ",<appointmentID>");
+        Appointment appointment = findOwnAppointment(fields[1]);
+        if (!appointment.hasStatus(AppointmentStatus.PENDING)) {
+            throw new CommandFailedException("appointment is " + appointment.getStatus());
+        }
+
+        Doctor doctor = (Doctor) user;
+        if (accept ? !doctor.acceptAppointment(appointment) : !doctor.declineAppointment(appointment)) {
+            throw new CommandFailedException("appointment was changed by another session");
+        }
+        return accept ? AppointmentStatus.CONFIRMED.name() : AppointmentStatus.CANCELLED.name();
+    }
+
+    private String record(String[] fields) throws CommandFailedException {
+        expectRole(UserRole.DOCTOR);
+        expectFields(fields, 8, "record,<appointmentID>,<diagnosis>,<medicine>,<quantity>,<treatmentPlan>,<typeOfService>,<notes>");
+        Appointment appointment = findOwnAppointment(fields[1]);
+        if (!appointment.hasStatus(AppointmentStatus.CONFIRMED)) {
+            throw new CommandFailedException("appointment is " + appointment.getStatus());
+        }
+        String medicine = fields[3].toUpperCase(Locale.ROOT);
+        if (!medicine.equals("NA") && !MedicineInventory.getInstance().hasMedicine(medicine)) {
+            throw new CommandFailedException("unknown medicine " + fields[3]);
+        }
+        int quantity;
+        try {
+            quantity = Integer.parseInt(fields[4]);
+        } catch (NumberFormatException e) {
+            quantity = -1;
+        }
+        if (quantity < 0) {
+            throw new CommandFailedException("quantity must be 0 or a positive integer");
+        }
+
+        if (!((Doctor) user).recordAppointmentOutcome(fields[1], fields[2], medicine, quantity, fields[5], appointment.getDate(), fields[6], fields[7])) {
+            throw new CommandFailedException("appointment was changed by another session");
+        }
+        return AppointmentStatus.COMPLETED.name();
+    }
+
+    private String dispense(String[] fields) throws CommandFailedException {
+        expectRole(UserRole.PHARMACIST);
+        expectFields(fields, 2, "dispense,<appointmentID>");
+        if (!((Pharmacist) user).updatePrescriptionStatus(fields[1])) {
+            throw new CommandFailedException("not dispensed");
+        }
+        return "DISPENSED";
+    }
+
+    private String approve(String[] fields) throws CommandFailedException {
+        expectRole(UserRole.ADMINISTRATOR);
+        expectFields(fields, 2, "approve,<requestID>");
+        if (administrator.approveReplenishmentRequests(Set.of(fields[1])).isEmpty()) {
+            throw new CommandFailedException("no pending replenishment request " + fields[1]);
+        }
+        return "APPROVED";
+    }
+
+    /**
+     * Finds an appointment of the logged-in doctor.
+     */
+    private Appointment findOwnAppointment(String appointmentID) throws CommandFailedException {
+        Appointment appointment = appointmentRepository.findById(appointmentID);
+        if (appointment == null || !appointment.getDoctorID().equals(userID)) {
+            throw new CommandFailedException("appointment not found");
+        }
+        return appointment;
+    }
+
+    private void expectRole(UserRole expected) throws CommandFailedException {
+        if (role != expected) {
+            throw new CommandFailedException("requires a " + expected.name().toLowerCase(Locale.ROOT) + " login");
+        }
+    }
+
+    private static void expectFields(String[] fields, int count, String usage) throws CommandFailedException {
+        // Free text cannot contain commas, which would also break the CSV files it is stored in
+        if (fields.length != count) {
+            throw new CommandFailedException("usage: " + usage);
+        }
+    }
+
+    /**
+     * Prints the number, failures and timing of the commands of each type.
+     */
+    private void printSummary(long elapsedNanos) {
+        int total = 0;
+        System.out.println("\n==== Batch Summary ====");
+        System.out.printf("%-10s %8s %8s %12s %12s %12s%n", "Command", "Count", "Failed", "Total ms", "Avg us", "Max us");
+        for (Map.Entry<String, CommandStats> entry : stats.entrySet()) {
+            CommandStats commandStats = entry.getValue();
+            total += commandStats.count;
+            System.out.printf("%-10s %8d %8d %12.1f %12.1f %12.1f%n", entry.getKey(), commandStats.count, commandStats.failed,
+                    commandStats.totalNanos / 1e6, commandStats.totalNanos / 1e3 / commandStats.count, commandStats.maxNanos / 1e3);
+        }
+        System.out.printf("%d commands in %.1f ms%n", total, elapsedNanos / 1e6);
+    }
+}
@@ -0,0 +1,115 @@
+package usermain;
+
+import enums.BillStatus;
+import java.util.Arrays;
+
+/**
+ * The Bill class is the compact in-memory form of one row of Bill.csv, as kept by
+ * {@link BillLedger}: the amount is kept as a number and the status as an enum constant,
+ * and bills that have no feedback yet share one placeholder String.
+ *
+ * <p>Bills handed out by the ledger are copies, so they never change under the caller.</p>
+ */
+public final class Bill {
+    /**
+     * The feedback recorded for a bill that has not been paid yet.
+     */
+    static final String NO_FEEDBACK = "na";
+
+    private final String appointmentID;
+    private final double amount;
+    private BillStatus status;
+    private String feedback;
+
+    /**
+     * Constructs a Bill.
+     *
+     * @param appointmentID The ID of the billed appointment
+     * @param amount        The amount due
+     * @param status        The status of the bill
+     * @param feedback      The patient's feedback, or {@link #NO_FEEDBACK} if there is none yet
+     */
+    Bill(String appointmentID, double amount, BillStatus status, String feedback) {
+        this.appointmentID = appointmentID;
+        this.amount = amount;
+        this.status = status;
+        this.feedback = NO_FEEDBACK.equals(feedback) ? NO_FEEDBACK : feedback;
+    }
+
+    /**
+     * Creates a bill from a row of Bill.csv or a journal record.
+     *
+     * @param fields The row (appointmentID, amount, status, feedback); feedback may have been split at its commas
+     * @return The bill, or null if the row is malformed
+     */
+    static Bill fromFields(String[] fields) {
+        if (fields.length < 3) {
+            return null;
+        }
+        try {
+            String feedback = fields.length > 3 ? String.join(",", Arrays.copyOfRange(fields, 3, fields.length)) : "";
+            return new Bill(fields[0], Double.parseDouble(fields[1]), BillStatus.valueOf(fields[2].trim().toUpperCase()), feedback);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a copy that does not share the mutable fields with this bill.
+     *
+     * @return A copy of the bill
+     */
+    Bill copy() {
+        return new Bill(appointmentID, amount, status, feedback);
+    }
+
+    /**
+     * Gets the ID of the billed appointment.
+     *
+     * @return The appointment ID
+     */
+    public String getAppointmentID() {
+        return appointmentID;
+    }
+
+    /**
+     * Gets the amount due.
+     *
+     * @return The amount due
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    /**
+     * Gets the status of the bill.
+     *
+     * @return The status of the bill
+     */
+    public BillStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the patient's feedback.
+     *
+     * @return The feedback, or {@link #NO_FEEDBACK} if the bill has not been paid
+     */
+    public String getFeedback() {
+        return feedback;
+    }
+
+    void markPaid(String feedback) {
+        this.status = BillStatus.PAID;
+        this.feedback = feedback;
+    }
+
+    /**
+     * Formats the bill as the fields of a row of Bill.csv.
+     *
+     * @return The fields (appointmentID, amount, status, feedback)
+     */
+    String[] toFields() {
+        return new String[]{appointmentID, String.valueOf(amount), status.name(), feedback};
+    }
+}
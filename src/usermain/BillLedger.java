@@ -0,0 +1,185 @@
+package usermain;
+
+import appointment.Appointment;
+import appointment.AppointmentRepository;
+import enums.AppointmentStatus;
+import enums.BillStatus;
+import storage.AppendOnlyJournal;
+import storage.EntityId;
+import storage.IntObjectMap;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The BillLedger class keeps the bills from Bill.csv in memory, keyed by appointment ID and
+ * indexed by the patient of each appointment. The patient index is built once by joining the
+ * bills with the appointments through a hash lookup, so finding a patient's pending bills
+ * costs time proportional to that patient's bills rather than to every bill and appointment.
+ *
+ * <p>Bills are held as compact {@link Bill} objects rather than arrays of Strings.</p>
+ *
+ * <p>New bills and payments are appended to a journal instead of rewriting Bill.csv, and the
+ * journal is compacted into the CSV file in the background.</p>
+ */
+public final class BillLedger {
+    private static final String BILL_FILE = "resources/Bill.csv";
+    private static final String BILL_JOURNAL = "resources/Bill.journal";
+    private static final String DEFAULT_HEADER = "appointmentID,BillAmount,Status,Feedback";
+    private static final int JOURNAL_MAX_RECORDS = 1000;
+    private static final long JOURNAL_MAX_AGE_MS = 60_000;
+
+    private static BillLedger instance;
+
+    private final Map<String, Bill> bills = new LinkedHashMap<>();
+    private final IntObjectMap<Map<String, Bill>> billsByPatient = new IntObjectMap<>(); // Keyed by EntityId
+    private final AppendOnlyJournal journal;
+    private String header = DEFAULT_HEADER;
+
+    /**
+     * Returns the shared ledger instance, loading Bill.csv on first use.
+     *
+     * @return The shared BillLedger
+     */
+    public static synchronized BillLedger getInstance() {
+        if (instance == null) {
+            instance = new BillLedger();
+        }
+        return instance;
+    }
+
+    private BillLedger() {
+        journal = new AppendOnlyJournal(BILL_FILE, BILL_JOURNAL, JOURNAL_MAX_RECORDS, JOURNAL_MAX_AGE_MS,
+                this, this::snapshotLines);
+        load();
+        for (String[] record : journal.replay()) {
+            Bill bill = Bill.fromFields(record);
+            if (bill != null) {
+                put(bill);
+            }
+        }
+    }
+
+    /**
+     * Loads all bills from Bill.csv. A later row for the same appointment replaces an earlier one.
+     */
+    private void load() {
+        try (BufferedReader reader = new BufferedReader(new FileReader(BILL_FILE))) {
+            String line = reader.readLine();
+            if (line != null && !line.isBlank()) {
+                header = line;
+            }
+
+            while ((line = reader.readLine()) != null) {
+                Bill bill = Bill.fromFields(line.split(",", 4));
+                if (bill == null) {
+                    continue;
+                }
+                put(bill);
+            }
+        } catch (FileNotFoundException e) {
+            // No bills yet; the file is created on the first compaction
+        } catch (IOException e) {
+            System.err.println("Error reading Bill.csv: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds or replaces a bill and files it under the patient of its appointment.
+     *
+     * @param bill The bill
+     */
+    private void put(Bill bill) {
+        bills.put(bill.getAppointmentID(), bill);
+        Appointment appointment = AppointmentRepository.getInstance().findById(bill.getAppointmentID());
+        if (appointment != null) {
+            billsByPatient.computeIfAbsent(EntityId.encode(appointment.getPatientID()), key -> new LinkedHashMap<>()).put(bill.getAppointmentID(), bill);
+        }
+    }
+
+    /**
+     * Retrieves copies of the pending bills of a patient's completed appointments.
+     *
+     * @param patientID The unique ID of the patient
+     * @return The matching bills
+     */
+    public synchronized List<Bill> findPendingBills(String patientID) {
+        List<Bill> result = new ArrayList<>();
+        Map<String, Bill> patientBills = billsByPatient.get(EntityId.encode(patientID));
+        if (patientBills == null) {
+            return result;
+        }
+
+        AppointmentRepository appointments = AppointmentRepository.getInstance();
+        for (Bill bill : patientBills.values()) {
+            if (bill.getStatus() == BillStatus.PENDING) {
+                Appointment appointment = appointments.findById(bill.getAppointmentID());
+                if (appointment != null && appointment.hasStatus(AppointmentStatus.COMPLETED)) {
+                    result.add(bill.copy());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether an appointment has already been billed.
+     *
+     * @param appointmentID The ID of the appointment
+     * @return true if a bill exists for the appointment; false otherwise
+     */
+    public synchronized boolean hasBill(String appointmentID) {
+        return bills.containsKey(appointmentID);
+    }
+
+    /**
+     * Records a batch of new bills with a single journal write. The appointment ID is the
+     * idempotency key: a bill for an appointment that has already been billed is skipped, so
+     * submitting the same dispense twice never bills it twice or resets a paid bill.
+     *
+     * @param newBills The bills to record
+     * @return A future that completes once the recorded bills have been written to the journal
+     */
+    public synchronized CompletableFuture<Void> addBills(List<Bill> newBills) {
+        List<String[]> added = new ArrayList<>(newBills.size());
+        for (Bill bill : newBills) {
+            if (!bills.containsKey(bill.getAppointmentID())) {
+                put(bill.copy());
+                added.add(bill.toFields());
+            }
+        }
+        return journal.appendAll(added);
+    }
+
+    /**
+     * Marks a bill as paid and records the patient's feedback.
+     *
+     * @param appointmentID The ID of the billed appointment
+     * @param feedback      The patient's feedback
+     * @return true if the bill was found; false otherwise
+     */
+    public synchronized boolean payBill(String appointmentID, String feedback) {
+        Bill bill = bills.get(appointmentID);
+        if (bill == null) {
+            return false;
+        }
+        bill.markPaid(feedback);
+        journal.append(bill.toFields());
+        return true;
+    }
+
+    /**
+     * Produces the full contents of Bill.csv from the ledger for journal compaction.
+     * Called by the journal while holding this ledger's lock.
+     *
+     * @return The header followed by one line per bill
+     */
+    private List<String> snapshotLines() {
+        List<String> lines = new ArrayList<>(bills.size() + 1);
+        lines.add(header);
+        for (Bill bill : bills.values()) {
+            lines.add(String.join(",", bill.toFields()));
+        }
+        return lines;
+    }
+}
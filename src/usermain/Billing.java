@@ -1,8 +1,6 @@
 package usermain;
 
 import enums.BillStatus;
-import java.io.*;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
@@ -31,81 +29,58 @@ public class Billing {
      * updates the billing records, and collects feedback.
      */
     public void processBilling() {
-        List<String> billRecords = new ArrayList<>();
-        boolean hasPendingBills = false;
+        BillLedger ledger = BillLedger.getInstance();
 
-        try (BufferedReader appointmentReader = new BufferedReader(new FileReader("resources/Appointment.csv"));
-             BufferedReader billReader = new BufferedReader(new FileReader("resources/Bill.csv"))) {
+        // Find pending bills of the patient's completed appointments through the per-patient bill index
+        List<Bill> pendingBills = ledger.findPendingBills(patientID);
 
-            String line;
-
-            // Read Appointment.csv to find completed appointments for the patient
-            List<String> completedAppointments = new ArrayList<>();
-            while ((line = appointmentReader.readLine()) != null) {
-                String[] fields = line.split(",");
-                String appointmentID = fields[0];
-                String appointmentPatientID = fields[2];
-                String status = fields[5];
-
-                // Check if appointment is completed and matches the patient ID
-                if (appointmentPatientID.equals(patientID) && status.equalsIgnoreCase("completed")) {
-                    completedAppointments.add(appointmentID);
-                }
-            }
-
-            // Read Bill.csv and update records only for pending bills of completed appointments
-            while ((line = billReader.readLine()) != null) {
-                String[] billFields = line.split(",");
-                String billAppointmentID = billFields[0];
-                String billAmount = billFields[1];
-                String billStatus = billFields[2];
-                String feedback = billFields.length > 3 ? billFields[3] : ""; // Feedback might be empty initially
-
-                // Process only if the appointment is completed and bill status is pending
-                if (completedAppointments.contains(billAppointmentID) && billStatus.equalsIgnoreCase(BillStatus.PENDING.name())) {
-                    hasPendingBills = true;
-                    System.out.println("\n==== Billing Information ====");
-                    System.out.println("Appointment ID: " + billAppointmentID);
-                    System.out.println("Bill Amount: $" + billAmount);
-                    System.out.println("Current Status: " + billStatus);
-
-                    // Prompt user to pay the bill
-                    int payChoice = getInputChoice("Would you like to pay this bill now? (1: Yes, 2: No): ");
-                    if (payChoice == 1) {
-                        billStatus = BillStatus.PAID.name();
+        // If no pending bills are found, inform the user
+        if (pendingBills.isEmpty()) {
+            System.out.println("No pending bills for completed appointments.");
+            return;
+        }
 
-                        // Prompt user for feedback
-                        feedback = getValidFeedback();
+        for (Bill bill : pendingBills) {
+            String billAppointmentID = bill.getAppointmentID();
+            double billAmount = bill.getAmount();
+            BillStatus billStatus = bill.getStatus();
 
-                        // Confirmation message for successful payment and feedback
-                        System.out.println("Bill paid successfully. Thank you for your feedback!");
-                    }
+            System.out.println("\n==== Billing Information ====");
+            System.out.println("Appointment ID: " + billAppointmentID);
+            System.out.println("Bill Amount: $" + billAmount);
+            System.out.println("Current Status: " + billStatus);
 
-                    // Reconstruct the line with updated data
-                    billRecords.add(billAppointmentID + "," + billAmount + "," + billStatus + "," + feedback);
-                } else {
-                    // Keep the line unchanged for non-matching records or already paid bills
-                    billRecords.add(line);
-                }
-            }
+            // Prompt user to pay the bill
+            int payChoice = getInputChoice("Would you like to pay this bill now? (1: Yes, 2: No): ");
+            if (payChoice == 1) {
+                // Prompt user for feedback; only this bill's record is updated
+                payBill(billAppointmentID, getValidFeedback());
 
-            // If no pending bills are found, inform the user
-            if (!hasPendingBills) {
-                System.out.println("No pending bills for completed appointments.");
-                return;
+                // Confirmation message for successful payment and feedback
+                System.out.println("Bill paid successfully. Thank you for your feedback!");
             }
+        }
+    }
 
-            // Write the modified records back to Bill.csv
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter("resources/Bill.csv"))) {
-                for (String record : billRecords) {
-                    writer.write(record);
-                    writer.newLine();
-                }
+    /**
+     * Pays one of the patient's pending bills without prompting.
+     *
+     * @param appointmentID The ID of the billed appointment
+     * @param feedback      The patient's feedback on the appointment
+     * @return true if the bill was pending and has been paid; false if it is not a pending bill of
+     *         the patient's completed appointments or the feedback is not valid
+     */
+    public boolean payBill(String appointmentID, String feedback) {
+        if (!isValidFeedback(feedback)) {
+            return false;
+        }
+        BillLedger ledger = BillLedger.getInstance();
+        for (Bill bill : ledger.findPendingBills(patientID)) {
+            if (bill.getAppointmentID().equals(appointmentID)) {
+                return ledger.payBill(appointmentID, feedback);
             }
-
-        } catch (IOException e) {
-            System.err.println("Error processing billing: " + e.getMessage());
         }
+        return false;
     }
 
     /**
@@ -140,11 +115,21 @@ public class Billing {
         while (true) {
             System.out.print("Please enter your feedback on the appointment: ");
             feedback = sc.nextLine().trim();
-            if (!feedback.isEmpty() && !feedback.matches("\\d+")) { // Checks if feedback is not empty and not purely numeric
+            if (isValidFeedback(feedback)) {
                 return feedback;
             } else {
                 System.out.println("Invalid feedback. Please enter meaningful text feedback without numbers.");
             }
         }
     }
+
+    /**
+     * Checks that feedback is meaningful text: not empty and not purely numeric.
+     *
+     * @param feedback The feedback to check
+     * @return true if the feedback is valid; false otherwise
+     */
+    private static boolean isValidFeedback(String feedback) {
+        return feedback != null && !feedback.trim().isEmpty() && !feedback.trim().matches("\\d+");
+    }
 }
@@ -0,0 +1,225 @@
+package usermain;
+
+import enums.BillStatus;
+import enums.PrescriptionStatus;
+import storage.CsvTokenizer;
+import storage.GroupCommitWriter;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The BillingPipeline class generates bills for dispensed prescriptions on a background thread,
+ * so a pharmacist never waits for the bill ledger or its journal. Dispenses are queued on a
+ * bounded queue; when it is full, submitting waits until the billing thread catches up. The
+ * billing thread drains whatever is queued and records it as one batch with a single journal
+ * write.
+ *
+ * <p>The appointment ID is the idempotency key of a bill. A dispense already waiting in the
+ * queue is not queued again, and the ledger skips appointments that already have a bill, so a
+ * repeated or replayed dispense is never billed twice. On start-up the billing thread bills any
+ * dispensed prescription in AppointmentRecord.csv that has no bill yet, which recovers the
+ * dispenses still queued when a previous run stopped.</p>
+ */
+public final class BillingPipeline {
+    private static final String RECORD_FILE = "resources/AppointmentRecord.csv";
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_BATCH = 64;
+    private static final Map<String, Double> MEDICINE_PRICES = new HashMap<>();
+
+    static {
+        // Initialize medicine prices
+        MEDICINE_PRICES.put("paracetamol", 0.125);
+        MEDICINE_PRICES.put("ibuprofen", 0.50);
+        MEDICINE_PRICES.put("amoxicillin", 0.95);
+    }
+
+    private static BillingPipeline instance;
+
+    /**
+     * A dispense waiting to be billed.
+     */
+    private static final class BillRequest {
+        private final String appointmentID;
+        private final String medicine;
+        private final int quantity;
+
+        private BillRequest(String appointmentID, String medicine, int quantity) {
+            this.appointmentID = appointmentID;
+            this.medicine = medicine;
+            this.quantity = quantity;
+        }
+    }
+
+    private static final BillRequest SHUTDOWN = new BillRequest("", "", 0);
+
+    private final BlockingQueue<BillRequest> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Set<String> queued = ConcurrentHashMap.newKeySet(); // Appointment IDs waiting in the queue
+    private final Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * Returns the shared pipeline instance, starting its billing thread on first use.
+     *
+     * @return The shared BillingPipeline
+     */
+    public static synchronized BillingPipeline getInstance() {
+        if (instance == null) {
+            instance = new BillingPipeline();
+        }
+        return instance;
+    }
+
+    private BillingPipeline() {
+        worker = new Thread(this::run, "billing-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "billing-pipeline-shutdown"));
+    }
+
+    /**
+     * Queues a dispensed prescription for billing, waiting while the queue is full.
+     *
+     * @param appointmentID The ID of the appointment the medicine was dispensed for
+     * @param medicine      The name of the dispensed medicine
+     * @param quantity      The dispensed quantity
+     * @return true if the dispense was queued; false if it is already queued or could not be queued
+     */
+    public boolean submit(String appointmentID, String medicine, int quantity) {
+        if (!queued.add(appointmentID)) {
+            return false;
+        }
+        BillRequest request = new BillRequest(appointmentID, medicine, quantity);
+        if (closed) {
+            // The billing thread is stopping; bill on the caller's thread instead
+            record(List.of(request));
+            return true;
+        }
+        try {
+            queue.put(request);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued.remove(appointmentID);
+            System.err.println("Bill for appointment " + appointmentID + " was not queued: interrupted");
+            return false;
+        }
+    }
+
+    /**
+     * Bills the dispenses missed by an earlier run, then bills queued dispenses in batches until shutdown.
+     */
+    private void run() {
+        recoverUnbilled();
+
+        List<BillRequest> batch = new ArrayList<>(MAX_BATCH);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            stopping = batch.remove(SHUTDOWN);
+            if (stopping) {
+                queue.drainTo(batch);
+            }
+            record(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Records a batch of dispenses as pending bills in the ledger.
+     */
+    private void record(List<BillRequest> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Bill> bills = new ArrayList<>(batch.size());
+        for (BillRequest request : batch) {
+            bills.add(new Bill(request.appointmentID, amount(request.medicine, request.quantity),
+                    BillStatus.PENDING, Bill.NO_FEEDBACK));
+        }
+        try {
+            // Wait for the journal so bills recorded while shutting down are written before exit
+            GroupCommitWriter.await(BillLedger.getInstance().addBills(bills));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error recording bills: " + e.getMessage());
+        } finally {
+            for (BillRequest request : batch) {
+                queued.remove(request.appointmentID);
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until every dispense queued so far has been billed, for callers such as batch jobs
+     * that pay a bill right after dispensing.
+     *
+     * @throws InterruptedException if the wait is interrupted
+     */
+    public synchronized void awaitBilled() throws InterruptedException {
+        while (!queued.isEmpty()) {
+            wait();
+        }
+    }
+
+    private static double amount(String medicine, int quantity) {
+        double unitPrice = MEDICINE_PRICES.getOrDefault(medicine.toLowerCase(), 0.0);
+        return unitPrice * quantity;
+    }
+
+    /**
+     * Bills every dispensed prescription in AppointmentRecord.csv that has no bill yet.
+     */
+    private void recoverUnbilled() {
+        BillLedger ledger = BillLedger.getInstance();
+        List<BillRequest> missing = new ArrayList<>();
+        try (CsvTokenizer reader = CsvTokenizer.open(RECORD_FILE)) {
+            reader.nextRow(); // Skip header
+            while (reader.nextRow()) {
+                if (reader.fieldCount() < 5 || !reader.fieldEqualsIgnoreCase(4, PrescriptionStatus.DISPENSED.name())) {
+                    continue;
+                }
+                String appointmentID = reader.field(0);
+                if (ledger.hasBill(appointmentID) || !queued.add(appointmentID)) {
+                    continue;
+                }
+                try {
+                    missing.add(new BillRequest(appointmentID, reader.field(2), reader.fieldAsInt(3)));
+                } catch (NumberFormatException e) {
+                    queued.remove(appointmentID);
+                    System.err.println("Skipping malformed appointment record: " + reader.row());
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // No appointment records yet
+        } catch (IOException e) {
+            System.err.println("Error reading AppointmentRecord.csv: " + e.getMessage());
+        }
+
+        for (int i = 0; i < missing.size(); i += MAX_BATCH) {
+            record(missing.subList(i, Math.min(i + MAX_BATCH, missing.size())));
+        }
+    }
+
+    /**
+     * Stops accepting queued dispenses and waits for the billing thread to record the ones already queued.
+     */
+    private void close() {
+        closed = true;
+        try {
+            queue.put(SHUTDOWN);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
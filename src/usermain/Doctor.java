@@ -1,8 +1,12 @@
 package usermain;
 
 import enums.AppointmentStatus;
+import appointment.Appointment;
 import appointment.AppointmentManager;
+import appointment.AppointmentRepository;
+import appointment.Dates;
 import appointment.DoctorAvailabilityManager;
+import storage.SharedCsvFile;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,8 +21,10 @@ public class Doctor extends User {
     private AppointmentManager appointmentManager;
     private DoctorAvailabilityManager availabilityManager;
 
-    private static final String APPOINTMENT_FILE = "resources/Appointment.csv";
+    private final AppointmentRepository appointmentRepository = AppointmentRepository.getInstance();
+
     private static final String APPOINTMENT_RECORD_FILE = "resources/AppointmentRecord.csv";
+    private static final int DAYS_PER_WEEK = 7;
 
     /**
      * Constructs a new Doctor object with the provided details.
@@ -57,23 +63,29 @@ public class Doctor extends User {
      * @param newConsultationNotes  The updated consultation notes
      */
     public void updatePatientMedicalRecord(String appointmentID, String newDiagnosis, String newPrescription, int newPrescriptionQuantity, String newTreatmentPlan, String newConsultationNotes) {
-        List<String[]> records = loadAppointmentRecords();
-        boolean updated = false;
-
-        for (String[] record : records) {
-            if (record[0].equals(appointmentID)) {
-                record[1] = newDiagnosis;
-                record[2] = newPrescription;
-                record[3] = String.valueOf(newPrescriptionQuantity);
-                record[5] = newTreatmentPlan;
-                record[8] = newConsultationNotes;
-                updated = true;
-                break;
-            }
+        boolean updated;
+        try {
+            updated = SharedCsvFile.of(APPOINTMENT_RECORD_FILE).update(lines -> {
+                for (int i = 0; i < lines.size(); i++) {
+                    String[] record = lines.get(i).split(",");
+                    if (record[0].equals(appointmentID)) {
+                        record[1] = newDiagnosis;
+                        record[2] = newPrescription;
+                        record[3] = String.valueOf(newPrescriptionQuantity);
+                        record[5] = newTreatmentPlan;
+                        record[8] = newConsultationNotes;
+                        lines.set(i, String.join(",", record));
+                        return true;
+                    }
+                }
+                return false;
+            });
+        } catch (IOException e) {
+            System.err.println("Error updating AppointmentRecord.csv: " + e.getMessage());
+            return;
         }
 
         if (updated) {
-            saveAppointmentRecords(records);
             System.out.println("Patient medical record updated successfully.");
 
             // Update the past treatment in Patient_List.csv
@@ -108,52 +120,85 @@ public class Doctor extends User {
     }
 
     /**
-     * Accepts an appointment by updating its status to "Confirmed."
+     * Accepts a pending appointment by updating its status to "Confirmed."
      *
-     * @param appointmentID The ID of the appointment to be accepted
+     * @param pending The pending appointment to be accepted
+     * @return true if the appointment was accepted; false if it is no longer pending at the same date and time
      */
-    public void acceptAppointment(String appointmentID) {
-        updateAppointmentStatus(appointmentID, AppointmentStatus.CONFIRMED.name());
+    public boolean acceptAppointment(Appointment pending) {
+        return appointmentManager.acceptAppointment(pending);
     }
 
     /**
-     * Declines an appointment by updating its status to "Cancelled."
+     * Declines a pending appointment by updating its status to "Cancelled" and freeing its slot.
      *
-     * @param appointmentID The ID of the appointment to be declined
+     * @param pending The pending appointment to be declined
+     * @return true if the appointment was declined; false if it is no longer pending at the same date and time
      */
-    public void declineAppointment(String appointmentID) {
-        updateAppointmentStatus(appointmentID, AppointmentStatus.CANCELLED.name());
+    public boolean declineAppointment(Appointment pending) {
+        return appointmentManager.declineAppointment(pending);
     }
 
     /**
-     * Displays all upcoming confirmed appointments for the doctor.
+     * Displays one page of the doctor's confirmed appointments from today onward, ordered by date and time.
+     *
+     * @param offset The number of upcoming appointments already shown
+     * @param limit  The maximum number of appointments to show
+     * @return true if there are more upcoming appointments after this page; false otherwise
      */
-    public void viewUpcomingAppointments() {
-        System.out.println("Upcoming Appointments for Doctor ID: " + doctorID);
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE))) {
-            String line;
-            boolean hasAppointments = false;
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-
-                if (fields[1].equals(doctorID) && fields[5].equals(AppointmentStatus.CONFIRMED.name())) {
-                    hasAppointments = true;
-                    System.out.println("Appointment ID: " + fields[0]);
-                    System.out.println("Patient ID: " + fields[2]);
-                    System.out.println("Date: " + fields[3]);
-                    System.out.println("Time Slot: " + fields[4]);
-                    System.out.println("Status: " + fields[5]);
-                    System.out.println("-------------------------");
-                }
-            }
+    public boolean viewUpcomingAppointments(int offset, int limit) {
+        if (offset == 0) {
+            System.out.println("Upcoming Appointments for Doctor ID: " + doctorID);
+        }
 
-            if (!hasAppointments) {
-                System.out.println("No upcoming confirmed appointments found for this doctor.");
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
+        // Ask for one extra appointment to find out whether another page follows
+        List<Appointment> page = appointmentRepository.findByDoctorBetween(doctorID, AppointmentStatus.CONFIRMED,
+                Dates.today(), Integer.MAX_VALUE, offset, limit + 1);
+        boolean hasMore = page.size() > limit;
+        if (hasMore) {
+            page.remove(limit);
+        }
+
+        boolean hasAppointments = false;
+
+        for (Appointment appointment : page) {
+            hasAppointments = true;
+            System.out.println("Appointment ID: " + appointment.getAppointmentID());
+            System.out.println("Patient ID: " + appointment.getPatientID());
+            System.out.println("Date: " + appointment.getDate());
+            System.out.println("Time Slot: " + appointment.getTimeSlot());
+            System.out.println("Status: " + appointment.getStatus());
+            System.out.println("-------------------------");
+        }
+
+        if (!hasAppointments && offset == 0) {
+            System.out.println("No upcoming confirmed appointments found for this doctor.");
+        }
+        return hasMore;
+    }
+
+    /**
+     * Displays the doctor's confirmed appointments for the week starting today, ordered by date and time.
+     * Only the days of the week are looked at, however long the doctor's history is.
+     */
+    public void viewWeekAppointments() {
+        int today = Dates.today();
+        System.out.println("Confirmed Appointments for Doctor ID: " + doctorID + " from " + Dates.toDate(today)
+                + " to " + Dates.toDate(today + DAYS_PER_WEEK - 1));
+
+        List<Appointment> week = appointmentRepository.findByDoctorBetween(doctorID, AppointmentStatus.CONFIRMED,
+                today, today + DAYS_PER_WEEK, 0, Integer.MAX_VALUE);
+        for (Appointment appointment : week) {
+            System.out.println("Appointment ID: " + appointment.getAppointmentID());
+            System.out.println("Patient ID: " + appointment.getPatientID());
+            System.out.println("Date: " + appointment.getDate());
+            System.out.println("Time Slot: " + appointment.getTimeSlot());
+            System.out.println("Status: " + appointment.getStatus());
+            System.out.println("-------------------------");
+        }
+
+        if (week.isEmpty()) {
+            System.out.println("No confirmed appointments found for this doctor in the next " + DAYS_PER_WEEK + " days.");
         }
     }
 
@@ -168,9 +213,17 @@ public class Doctor extends User {
      * @param date                  The date of the appointment
      * @param typeOfService         The type of service provided
      * @param notes                 Additional consultation notes
+     * @return true if the outcome was recorded; false if the appointment is no longer confirmed
      */
-    public void recordAppointmentOutcome(String appointmentID, String diagnosis, String prescriptionMedicine, int quantity, String treatmentPlan, String date, String typeOfService, String notes) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(APPOINTMENT_RECORD_FILE, true))) {
+    public boolean recordAppointmentOutcome(String appointmentID, String diagnosis, String prescriptionMedicine, int quantity, String treatmentPlan, String date, String typeOfService, String notes) {
+        // Complete the appointment first, so no outcome is recorded for one that was cancelled or rescheduled meanwhile
+        if (!appointmentManager.completeAppointment(appointmentID)) {
+            System.out.println("The appointment is no longer confirmed, so its outcome was not recorded.");
+            return false;
+        }
+        System.out.println("Appointment status updated to " + AppointmentStatus.COMPLETED + " for Appointment ID: " + appointmentID);
+
+        try {
             String line = String.join(",",
                     appointmentID,
                     diagnosis,
@@ -182,18 +235,15 @@ public class Doctor extends User {
                     typeOfService,
                     notes
             );
-            writer.write(line);
-            writer.newLine();
+            SharedCsvFile.of(APPOINTMENT_RECORD_FILE).append(line);
             System.out.println("Appointment outcome recorded successfully.");
         } catch (IOException e) {
             System.err.println("Error writing to AppointmentRecord.csv: " + e.getMessage());
         }
 
-        // Update the appointment status to completed in Appointment.csv
-        updateAppointmentStatus(appointmentID, AppointmentStatus.COMPLETED.name());
-
         // Update Patient_List.csv with the new diagnosis and treatment plan as past treatment
         updatePatientPastTreatment(appointmentID, diagnosis, treatmentPlan);
+        return true;
     }
 
     /**
@@ -212,16 +262,14 @@ public class Doctor extends User {
             return;
         }
 
-        List<String[]> records = new ArrayList<>();
-        boolean isUpdated = false;
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(patientFilePath))) {
-            String line;
-            records.add(reader.readLine().split(",")); // Add header to records
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(patientID)) {
+        boolean isUpdated;
+        try {
+            isUpdated = SharedCsvFile.of(patientFilePath).update(lines -> {
+                for (int i = 1; i < lines.size(); i++) { // Skip the header
+                    String[] fields = lines.get(i).split(",");
+                    if (!fields[0].equals(patientID)) {
+                        continue;
+                    }
                     // If `Past Treatments` already contains this appointment ID, update it; otherwise, append it
                     String pastTreatments = fields[8];
                     String[] treatmentsArray = pastTreatments.split("; ");
@@ -247,25 +295,17 @@ public class Doctor extends User {
                     }
 
                     fields[8] = updatedTreatments.toString(); // Update the PastTreatment field
-                    isUpdated = true;
+                    lines.set(i, String.join(",", fields));
+                    return true;
                 }
-                records.add(fields);
-            }
+                return false;
+            });
         } catch (IOException e) {
-            System.err.println("Error reading Patient_List.csv: " + e.getMessage());
+            System.err.println("Error updating Patient_List.csv: " + e.getMessage());
+            return;
         }
 
-        if (isUpdated) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(patientFilePath))) {
-                for (String[] record : records) {
-                    writer.write(String.join(",", record));
-                    writer.newLine();
-                }
-                //System.out.println("Patient's past treatments updated successfully in Patient_List.csv.");
-            } catch (IOException e) {
-                System.err.println("Error writing to Patient_List.csv: " + e.getMessage());
-            }
-        } else {
+        if (!isUpdated) {
             System.out.println("Patient record not found.");
         }
     }
@@ -277,112 +317,8 @@ public class Doctor extends User {
      * @return The patient ID if found, otherwise null
      */
     private String getPatientIDByAppointment(String appointmentID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(appointmentID)) {
-                    return fields[2]; // Patient ID is the third column in Appointment.csv
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
-        }
-        return null;
-    }
-
-    /**
-     * Updates the status of an appointment.
-     *
-     * @param appointmentID The ID of the appointment to be updated
-     * @param newStatus     The new status of the appointment
-     */
-    private void updateAppointmentStatus(String appointmentID, String newStatus) {
-        List<String[]> appointments = loadAppointments();
-        boolean updated = false;
-
-        for (String[] appointment : appointments) {
-            if (appointment[0].equals(appointmentID)) {
-                appointment[5] = newStatus;
-                updated = true;
-                break;
-            }
-        }
-
-        if (updated) {
-            saveAppointments(appointments);
-            System.out.println("Appointment status updated to " + newStatus + " for Appointment ID: " + appointmentID);
-        } else {
-            System.out.println("Appointment ID not found.");
-        }
-    }
-
-    /**
-     * Loads all appointments from the Appointment CSV file.
-     *
-     * @return A list of string arrays, where each array represents an appointment record
-     */
-    private List<String[]> loadAppointments() {
-        List<String[]> appointments = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                appointments.add(line.split(","));
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
-        }
-        return appointments;
-    }
-
-    /**
-     * Saves the updated list of appointments back to the Appointment CSV file.
-     *
-     * @param appointments The list of updated appointment records
-     */
-    private void saveAppointments(List<String[]> appointments) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(APPOINTMENT_FILE))) {
-            for (String[] appointment : appointments) {
-                writer.write(String.join(",", appointment));
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            System.err.println("Error writing to Appointment.csv: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Loads all appointment records from the AppointmentRecord CSV file.
-     *
-     * @return A list of string arrays, where each array represents an appointment record
-     */
-    private List<String[]> loadAppointmentRecords() {
-        List<String[]> records = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_RECORD_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                records.add(line.split(","));
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading AppointmentRecord.csv: " + e.getMessage());
-        }
-        return records;
-    }
-
-    /**
-     * Saves the updated appointment records back to the AppointmentRecord CSV file.
-     *
-     * @param records The list of updated appointment records
-     */
-    private void saveAppointmentRecords(List<String[]> records) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(APPOINTMENT_RECORD_FILE))) {
-            for (String[] record : records) {
-                writer.write(String.join(",", record));
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            System.err.println("Error writing to AppointmentRecord.csv: " + e.getMessage());
-        }
+        Appointment appointment = appointmentRepository.findById(appointmentID);
+        return appointment == null ? null : appointment.getPatientID();
     }
 
     /**
@@ -398,34 +334,20 @@ public class Doctor extends User {
     public void viewAppointmentsByDate(String date) {
         System.out.println("Confirmed Appointments for Doctor ID: " + doctorID + " on " + date);
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE))) {
-            String line;
-            boolean hasAppointments = false;
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-
-                // Validate fields length to avoid ArrayIndexOutOfBoundsException
-                if (fields.length >= 6 &&
-                        fields[1].equals(doctorID) &&
-                        fields[3].equals(date) &&
-                        fields[5].equals(AppointmentStatus.CONFIRMED.name())) {
-
-                    hasAppointments = true;
-                    System.out.println("Appointment ID: " + fields[0]);
-                    System.out.println("Patient ID: " + fields[2]);
-                    System.out.println("Date: " + fields[3]);
-                    System.out.println("Time Slot: " + fields[4]);
-                    System.out.println("Status: " + fields[5]);
-                    System.out.println("-------------------------");
-                }
-            }
+        boolean hasAppointments = false;
 
-            if (!hasAppointments) {
-                System.out.println("No confirmed appointments found for this doctor on " + date + ".");
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
+        for (Appointment appointment : appointmentRepository.findByDoctorStatusAndDate(doctorID, AppointmentStatus.CONFIRMED, date)) {
+            hasAppointments = true;
+            System.out.println("Appointment ID: " + appointment.getAppointmentID());
+            System.out.println("Patient ID: " + appointment.getPatientID());
+            System.out.println("Date: " + appointment.getDate());
+            System.out.println("Time Slot: " + appointment.getTimeSlot());
+            System.out.println("Status: " + appointment.getStatus());
+            System.out.println("-------------------------");
+        }
+
+        if (!hasAppointments) {
+            System.out.println("No confirmed appointments found for this doctor on " + date + ".");
         }
     }
 }
@@ -4,8 +4,11 @@ import enums.UserRole;
 import java.io.*;
 import java.util.*;
 import usermenu.*;
+import appointment.AppointmentRepository;
 import appointment.AppointmentService;
+import appointment.DoctorAvailabilityIndex;
 import appointment.DoctorAvailabilityService;
+import storage.SharedCsvFile;
 
 /**
  * The Main class for the Hospital Management System.
@@ -15,12 +18,46 @@ import appointment.DoctorAvailabilityService;
 public class Main {
     /**
      * The entry point of the application.
-     * Handles user authentication and redirects to role-specific menus.
+     * Without arguments, runs a single session on the console. With {@code --server [port]},
+     * serves many concurrent sessions over local sockets instead. With {@code --batch <file>},
+     * runs the commands in the script file without prompts (see {@link BatchRunner}).
      *
-     * @param args Command-line arguments (not used in this application).
+     * @param args Command-line arguments: optionally {@code --server} followed by a port,
+     *             or {@code --batch} followed by a script file.
      * @throws IOException if there is an error reading or writing to files.
      */
     public static void main(String[] args) throws IOException {
+        // Claim the journal-backed stores first, so a second process using the same resources stops here
+        try {
+            AppointmentRepository.getInstance();
+            DoctorAvailabilityIndex.getInstance();
+            BillLedger.getInstance();
+            MedicineInventory.getInstance();
+        } catch (IllegalStateException e) {
+            System.err.println("Unable to start: " + e.getMessage());
+            System.exit(1);
+        }
+
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : SessionServer.DEFAULT_PORT;
+            SessionServer.serve(port);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--batch")) {
+            BatchRunner.run(args[1]);
+            return;
+        }
+        runSession();
+    }
+
+    /**
+     * Runs one session: handles user authentication and redirects to the role-specific menu.
+     * Reads from {@code System.in} and writes to {@code System.out}, which in server mode
+     * belong to the calling thread's session.
+     *
+     * @throws IOException if there is an error reading or writing to files.
+     */
+    static void runSession() throws IOException {
         Scanner sc = new Scanner(System.in);
         String id, password, name = null;
         String role = null;
@@ -158,6 +195,7 @@ public class Main {
 
     /**
      * Updates the password of a user in the specified CSV files.
+     * Each file is rewritten under an exclusive lock shared with other sessions and processes.
      *
      * @param userFilePath      The file path of the User.csv file.
      * @param patientFilePath   The file path of the Patient_List.csv file.
@@ -167,49 +205,30 @@ public class Main {
      */
     private static void updatePasswordInCSV(String userFilePath, String patientFilePath, String userId, String newPassword) throws IOException {
         // Update password in User.csv
-        List<String> userLines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(userFilePath))) {
-            String line;
-            userLines.add(reader.readLine()); // Read header
-
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data[0].equals(userId)) {
-                    data[1] = newPassword;
-                    line = String.join(",", data);
-                }
-                userLines.add(line);
-            }
-        }
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(userFilePath))) {
-            for (String updatedLine : userLines) {
-                writer.write(updatedLine);
-                writer.newLine();
-            }
-        }
+        SharedCsvFile.of(userFilePath).update(lines -> setPassword(lines, userId, newPassword));
 
         // Update password in Patient_List.csv (only if the user is a patient)
-        List<String> patientLines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(patientFilePath))) {
-            String line;
-            patientLines.add(reader.readLine()); // Read header
-
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data[0].equals(userId)) { // Check if this is the patient
-                    data[1] = newPassword;
-                    line = String.join(",", data);
-                }
-                patientLines.add(line);
-            }
-        }
+        SharedCsvFile.of(patientFilePath).update(lines -> setPassword(lines, userId, newPassword));
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(patientFilePath))) {
-            for (String updatedLine : patientLines) {
-                writer.write(updatedLine);
-                writer.newLine();
+    /**
+     * Sets the password column of the user's row, skipping the header.
+     *
+     * @param lines       The lines of a CSV file whose first two columns are the ID and password
+     * @param userId      The ID of the user whose password needs to be updated.
+     * @param newPassword The new password to set for the user.
+     * @return true if the user's row was found; false otherwise
+     */
+    private static boolean setPassword(List<String> lines, String userId, String newPassword) {
+        boolean updated = false;
+        for (int i = 1; i < lines.size(); i++) {
+            String[] data = lines.get(i).split(",");
+            if (data[0].equals(userId)) {
+                data[1] = newPassword;
+                lines.set(i, String.join(",", data));
+                updated = true;
             }
         }
+        return updated;
     }
 }
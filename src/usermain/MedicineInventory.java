@@ -0,0 +1,274 @@
+package usermain;
+
+import enums.StockMovementType;
+import storage.AppendOnlyJournal;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * The MedicineInventory class keeps the stock levels from Medicine_List.csv in memory as one
+ * atomic counter per medicine. Dispensing takes stock with a compare-and-set that only succeeds
+ * while enough stock is left, and replenishing adds to it the same way, so pharmacists and
+ * administrators working at the same time never lose each other's changes and never wait on a
+ * shared lock.
+ *
+ * <p>Every stock movement is appended to a movement log with the new level of the medicine and
+ * a version that increases with each change. Replaying the log keeps the highest version of
+ * each medicine, so records written slightly out of order by concurrent counters still restore
+ * the latest level. The log is compacted into Medicine_List.csv in the background.</p>
+ *
+ * <p>The counters are shared by the threads of one process only. Stock levels are loaded once
+ * and compaction writes the whole file from this process's counters, so the movement log is
+ * owned by one process for its lifetime (see {@link AppendOnlyJournal}). A second process on
+ * the same files fails at startup instead of overwriting the first one's movements.</p>
+ */
+public final class MedicineInventory {
+    private static final String MEDICINE_FILE = "resources/Medicine_List.csv";
+    private static final String MEDICINE_JOURNAL = "resources/Medicine_List.journal";
+    private static final String DEFAULT_HEADER = "Medicine Name,Initial Stock,Low Stock Level Alert";
+    private static final int JOURNAL_MAX_RECORDS = 1000;
+    private static final long JOURNAL_MAX_AGE_MS = 60_000;
+
+    private static MedicineInventory instance;
+
+    /**
+     * The stock level and low stock alert of a medicine at one version.
+     */
+    private static final class Level {
+        private final long version;
+        private final int stock;
+        private final int lowStockAlert;
+
+        private Level(long version, int stock, int lowStockAlert) {
+            this.version = version;
+            this.stock = stock;
+            this.lowStockAlert = lowStockAlert;
+        }
+    }
+
+    /**
+     * One medicine and its current level.
+     */
+    private static final class Medicine {
+        private final String name;
+        private final AtomicReference<Level> level;
+
+        private Medicine(String name, Level level) {
+            this.name = name;
+            this.level = new AtomicReference<>(level);
+        }
+    }
+
+    private final Map<String, Medicine> medicines; // Keyed by upper-case name; fixed after loading
+    private final AppendOnlyJournal journal;
+    private String header = DEFAULT_HEADER;
+
+    /**
+     * Returns the shared inventory instance, loading Medicine_List.csv on first use.
+     *
+     * @return The shared MedicineInventory
+     * @throws IllegalStateException if another process owns the movement log
+     */
+    public static synchronized MedicineInventory getInstance() {
+        if (instance == null) {
+            instance = new MedicineInventory();
+        }
+        return instance;
+    }
+
+    private MedicineInventory() {
+        Map<String, Medicine> loaded = new LinkedHashMap<>();
+        load(loaded);
+        medicines = Collections.unmodifiableMap(loaded);
+
+        journal = new AppendOnlyJournal(MEDICINE_FILE, MEDICINE_JOURNAL, JOURNAL_MAX_RECORDS, JOURNAL_MAX_AGE_MS,
+                this, this::snapshotLines);
+        for (String[] record : journal.replay()) {
+            if (record.length >= 4) {
+                applyRecord(record);
+            }
+        }
+    }
+
+    /**
+     * Loads all medicines from Medicine_List.csv.
+     */
+    private void load(Map<String, Medicine> loaded) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(MEDICINE_FILE))) {
+            String line = reader.readLine();
+            if (line != null && !line.isBlank()) {
+                header = line;
+            }
+
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length < 3) {
+                    continue;
+                }
+                try {
+                    Level level = new Level(0, Integer.parseInt(fields[1].trim()), Integer.parseInt(fields[2].trim()));
+                    loaded.put(key(fields[0]), new Medicine(fields[0].trim(), level));
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping malformed medicine record: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading Medicine_List.csv: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a movement record (name, stock, lowStockAlert, version, ...) if it is newer than the current level.
+     */
+    private void applyRecord(String[] record) {
+        Medicine medicine = medicines.get(key(record[0]));
+        if (medicine == null) {
+            return;
+        }
+        try {
+            Level level = new Level(Long.parseLong(record[3]), Integer.parseInt(record[1]), Integer.parseInt(record[2]));
+            if (level.version > medicine.level.get().version) {
+                medicine.level.set(level);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping malformed movement record for " + record[0]);
+        }
+    }
+
+    private static String key(String name) {
+        return name.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Checks whether a medicine is part of the inventory.
+     *
+     * @param name The name of the medicine, in any case
+     * @return true if the medicine is known; false otherwise
+     */
+    public boolean hasMedicine(String name) {
+        return medicines.containsKey(key(name));
+    }
+
+    /**
+     * Retrieves the current stock levels of all medicines, in the order of Medicine_List.csv.
+     *
+     * @return One row per medicine (name, stock, lowStockAlert)
+     */
+    public List<String[]> snapshot() {
+        List<String[]> rows = new ArrayList<>(medicines.size());
+        for (Medicine medicine : medicines.values()) {
+            Level level = medicine.level.get();
+            rows.add(new String[]{medicine.name, String.valueOf(level.stock), String.valueOf(level.lowStockAlert)});
+        }
+        return rows;
+    }
+
+    /**
+     * Takes stock of a medicine if enough is left.
+     *
+     * @param name      The name of the medicine, in any case
+     * @param quantity  The quantity to dispense
+     * @param reference The appointment the medicine is dispensed for
+     * @return The stock left after dispensing, or -1 if the medicine is unknown or its stock is insufficient
+     */
+    public int dispense(String name, int quantity, String reference) {
+        Level level = change(name, StockMovementType.DISPENSE, -quantity, reference,
+                current -> current.stock < quantity ? null : new Level(current.version + 1, current.stock - quantity, current.lowStockAlert));
+        return level == null ? -1 : level.stock;
+    }
+
+    /**
+     * Puts dispensed stock back, for a dispense that could not be recorded.
+     *
+     * @param name      The name of the medicine, in any case
+     * @param quantity  The quantity to return
+     * @param reference The appointment the medicine was dispensed for
+     * @return The stock after the return, or -1 if the medicine is unknown
+     */
+    public int returnStock(String name, int quantity, String reference) {
+        return add(name, quantity, StockMovementType.RETURN, reference);
+    }
+
+    /**
+     * Adds the quantity of an approved replenishment request to the stock of a medicine.
+     *
+     * @param name      The name of the medicine, in any case
+     * @param quantity  The quantity to add
+     * @param reference The ID of the replenishment request
+     * @return The stock after replenishing, or -1 if the medicine is unknown
+     */
+    public int replenish(String name, int quantity, String reference) {
+        return add(name, quantity, StockMovementType.REPLENISH, reference);
+    }
+
+    private int add(String name, int quantity, StockMovementType type, String reference) {
+        Level level = change(name, type, quantity, reference,
+                current -> new Level(current.version + 1, current.stock + quantity, current.lowStockAlert));
+        return level == null ? -1 : level.stock;
+    }
+
+    /**
+     * Sets the stock level of a medicine directly.
+     *
+     * @param name  The name of the medicine, in any case
+     * @param stock The new stock level
+     * @return true if the medicine was found; false otherwise
+     */
+    public boolean setStock(String name, int stock) {
+        return change(name, StockMovementType.ADJUST, 0, "",
+                current -> new Level(current.version + 1, stock, current.lowStockAlert)) != null;
+    }
+
+    /**
+     * Sets the low stock level alert of a medicine.
+     *
+     * @param name          The name of the medicine, in any case
+     * @param lowStockAlert The new low stock level alert
+     * @return true if the medicine was found; false otherwise
+     */
+    public boolean setLowStockAlert(String name, int lowStockAlert) {
+        return change(name, StockMovementType.ALERT_LEVEL, 0, "",
+                current -> new Level(current.version + 1, current.stock, lowStockAlert)) != null;
+    }
+
+    /**
+     * Moves a medicine to a new level with a compare-and-set loop and records the movement in the log.
+     *
+     * @param next Computes the next level from the current one, or returns null to leave it unchanged
+     * @return The new level, or null if the medicine is unknown or the change was refused
+     */
+    private Level change(String name, StockMovementType type, int delta, String reference, UnaryOperator<Level> next) {
+        Medicine medicine = medicines.get(key(name));
+        if (medicine == null) {
+            return null;
+        }
+        while (true) {
+            Level current = medicine.level.get();
+            Level updated = next.apply(current);
+            if (updated == null) {
+                return null;
+            }
+            if (medicine.level.compareAndSet(current, updated)) {
+                journal.append(medicine.name, String.valueOf(updated.stock), String.valueOf(updated.lowStockAlert),
+                        String.valueOf(updated.version), type.name(), String.valueOf(delta), reference);
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Produces the full contents of Medicine_List.csv from the inventory for journal compaction.
+     *
+     * @return The header followed by one line per medicine
+     */
+    private List<String> snapshotLines() {
+        List<String> lines = new ArrayList<>(medicines.size() + 1);
+        lines.add(header);
+        for (String[] row : snapshot()) {
+            lines.add(String.join(",", row));
+        }
+        return lines;
+    }
+}
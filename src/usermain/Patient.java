@@ -1,7 +1,12 @@
 package usermain;
 
 import enums.AppointmentStatus;
+import appointment.Appointment;
 import appointment.AppointmentManager;
+import appointment.AppointmentRepository;
+import appointment.AvailableSlot;
+import storage.MappedCsvFile;
+import storage.SharedCsvFile;
 import appointment.DoctorAvailabilityManager;
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -140,43 +145,27 @@ public class Patient extends User {
      */
     private boolean updatePatientInfoInCSV(String patientID, String newEmail, String newContactNo) {
         String filePath = "resources/Patient_List.csv";
-        List<String[]> records = new ArrayList<>();
-        boolean isUpdated = false;
 
-        // Read the CSV file and store each record in a list
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line = reader.readLine(); // Read header line
-            if (line != null) {
-                records.add(line.split(",")); // Add header to records
-            }
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                // Check if this is the record to be updated
-                if (fields[0].equals(patientID)) {
-                    fields[5] = newContactNo; // Update contact number
-                    fields[6] = newEmail; // Update email
-                    isUpdated = true;
+        // Update the record in place while the file is locked against other writers
+        try {
+            return SharedCsvFile.of(filePath).update(lines -> {
+                boolean isUpdated = false;
+                for (int i = 1; i < lines.size(); i++) { // Skip the header
+                    String[] fields = lines.get(i).split(",");
+                    // Check if this is the record to be updated
+                    if (fields[0].equals(patientID)) {
+                        fields[5] = newContactNo; // Update contact number
+                        fields[6] = newEmail; // Update email
+                        lines.set(i, String.join(",", fields));
+                        isUpdated = true;
+                    }
                 }
-                records.add(fields);
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Patient_List.csv: " + e.getMessage());
-            return false;
-        }
-
-        // Write the updated records back to the CSV file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            for (String[] record : records) {
-                writer.write(String.join(",", record));
-                writer.newLine();
-            }
+                return isUpdated;
+            });
         } catch (IOException e) {
-            System.err.println("Error writing to Patient_List.csv: " + e.getMessage());
+            System.err.println("Error updating Patient_List.csv: " + e.getMessage());
             return false;
         }
-
-        return isUpdated;
     }
 
     /**
@@ -194,26 +183,21 @@ public class Patient extends User {
     }
 
     /**
-     * Schedules a new appointment for the patient.
+     * Displays the earliest available appointment slots across all doctors from a date onward.
      *
-     * @param patientID The patient's ID
+     * @param fromDate The first date to consider
+     * @param count    The maximum number of slots to display
      */
-    public void scheduleAppointment(String patientID) {
-        String appointmentID = appointmentManager.scheduleAppointment(patientID);
-        if (appointmentID != null) {
-            System.out.println("Appointment scheduled successfully. The appointment ID is " + appointmentID);
-        } else {
-            System.out.println("Failed to schedule the appointment. Please check the details and try again.");
+    public void viewEarliestAvailableSlots(String fromDate, int count) {
+        List<AvailableSlot> slots = appointmentManager.findEarliestAvailableSlots(fromDate, count, null);
+        if (slots.isEmpty()) {
+            System.out.println("No available slots from " + fromDate + " onward.");
+            return;
+        }
+        System.out.println("Earliest Available Slots:");
+        for (AvailableSlot slot : slots) {
+            System.out.println(slot);
         }
-    }
-
-    /**
-     * Reschedules an existing appointment by its ID.
-     *
-     * @param appointmentID The ID of the appointment to be rescheduled
-     */
-    public void rescheduleAppointment(String appointmentID) {
-        appointmentManager.rescheduleAppointment(appointmentID);
     }
 
     /**
@@ -229,75 +213,43 @@ public class Patient extends User {
      * Displays the outcomes of past completed appointments for the patient.
      */
     public void viewPastAppointmentOutcome() {
-        String appointmentFilePath = "resources/Appointment.csv";
         String recordFilePath = "resources/AppointmentRecord.csv";
         System.out.println("Past Appointment Outcomes for Patient ID: " + patientID);
 
         // List to store completed appointment IDs for this patient
         List<String> completedAppointments = new ArrayList<>();
 
-        // Step 1: Read Appointment.csv to find completed appointments for this patient
-        try (BufferedReader appointmentReader = new BufferedReader(new FileReader(appointmentFilePath))) {
-            String line = appointmentReader.readLine(); // Skip header line
-
-            while ((line = appointmentReader.readLine()) != null) {
-                String[] fields = line.split(",");
-
-                // Check if the line has the expected number of fields
-                if (fields.length < 6) {
-                    System.out.println("Skipping malformed line in Appointment.csv: " + line);
-                    continue;
-                }
-
-                String appointmentID = fields[0];
-                String appointmentPatientID = fields[2];
-                String status = fields[5];
-
-                // If the appointment is completed for the current patient, store the appointmentID
-                if (appointmentPatientID.equals(patientID) && status.equalsIgnoreCase(AppointmentStatus.COMPLETED.name())) {
-                    completedAppointments.add(appointmentID);
-                }
-            }
+        // Step 1: Find completed appointments for this patient
+        for (Appointment appointment : AppointmentRepository.getInstance().findByPatientAndStatus(patientID, AppointmentStatus.COMPLETED)) {
+            completedAppointments.add(appointment.getAppointmentID());
+        }
 
-            if (completedAppointments.isEmpty()) {
-                System.out.println("No completed appointments found for this patient.");
-                return;
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
+        if (completedAppointments.isEmpty()) {
+            System.out.println("No completed appointments found for this patient.");
             return;
         }
 
-        // Step 2: Read AppointmentRecord.csv to print details for completed appointments
-        try (BufferedReader recordReader = new BufferedReader(new FileReader(recordFilePath))) {
-            String line;
+        // Step 2: Scan the memory-mapped AppointmentRecord.csv for the completed appointments
+        try {
             boolean hasRecord = false;
 
-            while ((line = recordReader.readLine()) != null) {
-                String[] fields = line.split(",");
-
+            for (String[] fields : MappedCsvFile.of(recordFilePath).findAll(0, completedAppointments)) {
                 // Check if the line has the expected number of fields
                 if (fields.length < 9) {
-                    //System.out.println("Skipping malformed line in AppointmentRecord.csv: " + line);
                     continue;
                 }
 
-                String appointmentID = fields[0];
-
-                // If the appointmentID is in the completedAppointments list, print the record
-                if (completedAppointments.contains(appointmentID)) {
-                    hasRecord = true;
-                    System.out.println("Appointment ID: " + fields[0]);
-                    System.out.println("Diagnosis: " + fields[1]);
-                    System.out.println("Prescription Medicine: " + fields[2]);
-                    System.out.println("Prescription Quantity: " + fields[3]);
-                    System.out.println("Prescription Status: " + fields[4]);
-                    System.out.println("Treatment Plan: " + fields[5]);
-                    System.out.println("Date: " + fields[6]);
-                    System.out.println("Type of Service: " + fields[7]);
-                    System.out.println("Consultation Notes: " + fields[8]);
-                    System.out.println("-------------------------");
-                }
+                hasRecord = true;
+                System.out.println("Appointment ID: " + fields[0]);
+                System.out.println("Diagnosis: " + fields[1]);
+                System.out.println("Prescription Medicine: " + fields[2]);
+                System.out.println("Prescription Quantity: " + fields[3]);
+                System.out.println("Prescription Status: " + fields[4]);
+                System.out.println("Treatment Plan: " + fields[5]);
+                System.out.println("Date: " + fields[6]);
+                System.out.println("Type of Service: " + fields[7]);
+                System.out.println("Consultation Notes: " + fields[8]);
+                System.out.println("-------------------------");
             }
 
             if (!hasRecord) {
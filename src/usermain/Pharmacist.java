@@ -1,13 +1,16 @@
 package usermain;
 
-import enums.BillStatus;
+import appointment.Appointment;
+import appointment.AppointmentRepository;
+import storage.CsvTokenizer;
+import storage.IdAllocator;
+import storage.SharedCsvFile;
 import java.util.ArrayList;
 import java.util.List;
 import java.io.*;
-import java.util.Random;
+import enums.AppointmentStatus;
 import enums.PrescriptionStatus;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Represents a Pharmacist user in the Hospital Management System.
@@ -15,14 +18,11 @@ import java.util.Map;
  * updating prescription statuses, managing medication inventory, submitting replenishment requests, and generating bills.
  */
 public class Pharmacist extends User {
-    private static final Map<String, Double> MEDICINE_PRICES = new HashMap<>();
-
-    static {
-        // Initialize medicine prices
-        MEDICINE_PRICES.put("paracetamol", 0.125);
-        MEDICINE_PRICES.put("ibuprofen", 0.50);
-        MEDICINE_PRICES.put("amoxicillin", 0.95);
-    }
+    private static final String REPLENISHMENT_FILE = "resources/ReplenishmentRequest.csv";
+    private static final String REPLENISHMENT_ID_SEQUENCE = "resources/ReplenishmentRequestID.seq";
+    private static final String REPLENISHMENT_ID_PREFIX = "RR";
+    private static final int REPLENISHMENT_ID_BLOCK = 100;
+    private static final long FIRST_REPLENISHMENT_NUMBER = 1000; // Above the legacy random RR000-RR999 range
 
     /**
      * Constructor to initialize a Pharmacist object with full user details.
@@ -51,52 +51,27 @@ public class Pharmacist extends User {
      * @param appointmentID The ID of the appointment to view.
      */
     public void viewAppointmentOutcome(String appointmentID) {
-        String appointmentFilePath = "resources/Appointment.csv";
         String recordFilePath = "resources/AppointmentRecord.csv";
         System.out.println("Appointment Outcome for Appointment ID: " + appointmentID);
 
         // Verify that the appointment is completed
-        boolean isCompleted = false;
-
-        try (BufferedReader appointmentReader = new BufferedReader(new FileReader(appointmentFilePath))) {
-            String line = appointmentReader.readLine(); // Skip header line
+        Appointment appointment = AppointmentRepository.getInstance().findById(appointmentID);
+        boolean isCompleted = appointment != null && appointment.hasStatus(AppointmentStatus.COMPLETED);
 
-            while ((line = appointmentReader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields.length < 6) {
-                    System.out.println("Skipping malformed line in Appointment.csv: " + line);
-                    continue;
-                }
-
-                String currentAppointmentID = fields[0];
-                String status = fields[5];
-
-                if (currentAppointmentID.equals(appointmentID) && status.equalsIgnoreCase("completed")) {
-                    isCompleted = true;
-                    break;
-                }
-            }
-
-            if (!isCompleted) {
-                System.out.println("No completed appointment found for the given appointment ID.");
-                return;
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
+        if (!isCompleted) {
+            System.out.println("No completed appointment found for the given appointment ID.");
             return;
         }
 
         // Read AppointmentRecord.csv to display appointment details
-        try (BufferedReader recordReader = new BufferedReader(new FileReader(recordFilePath))) {
-            String line;
+        try (CsvTokenizer recordReader = CsvTokenizer.open(recordFilePath)) {
             boolean hasRecord = false;
 
-            while ((line = recordReader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields.length < 9) continue;
+            while (recordReader.nextRow()) {
+                if (recordReader.fieldCount() < 9) continue;
 
-                String recordAppointmentID = fields[0];
-                if (recordAppointmentID.equals(appointmentID)) {
+                if (recordReader.fieldEquals(0, appointmentID)) {
+                    String[] fields = recordReader.fields();
                     hasRecord = true;
                     System.out.println("Appointment ID: " + fields[0]);
                     System.out.println("Diagnosis: " + fields[1]);
@@ -125,13 +100,11 @@ public class Pharmacist extends User {
      * Checks medicine stock and updates the inventory and appointment records.
      *
      * @param appointmentID The ID of the appointment for which the prescription is being updated.
+     * @return true if the medicine was dispensed; false otherwise.
      */
-    public void updatePrescriptionStatus(String appointmentID) {
+    public boolean updatePrescriptionStatus(String appointmentID) {
         String recordFilePath = "resources/AppointmentRecord.csv";
-        String medicineFilePath = "resources/Medicine_List.csv";
         boolean appointmentFound = false;
-        boolean stockSufficient = false;
-        List<String[]> records = new ArrayList<>();
         String prescribedMedicine = "";
         int prescribedQuantity = 0;
 
@@ -148,103 +121,97 @@ public class Pharmacist extends User {
 
                     if (!fields[4].equalsIgnoreCase(PrescriptionStatus.PENDING.name())) {
                         System.out.println("Prescription is already dispensed for this appointment.");
-                        return;
+                        return false;
                     }
                 }
-                records.add(fields);
             }
         } catch (IOException e) {
             System.err.println("Error reading AppointmentRecord.csv: " + e.getMessage());
-            return;
+            return false;
         }
 
         if (!appointmentFound) {
             System.out.println("Appointment ID " + appointmentID + " not found.");
-            return;
+            return false;
         }
 
-        // Check stock in Medicine_List.csv
-        List<String[]> medicineList = new ArrayList<>();
-        try (BufferedReader medicineReader = new BufferedReader(new FileReader(medicineFilePath))) {
-            String line;
-
-            while ((line = medicineReader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equalsIgnoreCase(prescribedMedicine)) {
-                    int currentStock = Integer.parseInt(fields[1]);
-                    if (currentStock >= prescribedQuantity) {
-                        stockSufficient = true;
-                        currentStock -= prescribedQuantity;
-                        fields[1] = String.valueOf(currentStock);
-                        System.out.println("Dispensed " + prescribedQuantity + " units of " + prescribedMedicine + ". Updated stock: " + currentStock);
-                    } else {
-                        System.out.println("Insufficient stock for " + prescribedMedicine + ". Please submit a stock replenishment request.");
-                        return;
+        // Re-check the prescription under an exclusive lock on AppointmentRecord.csv and take the
+        // stock from the inventory's atomic counter; the stock is put back if the record cannot be saved
+        MedicineInventory inventory = MedicineInventory.getInstance();
+        String medicine = prescribedMedicine;
+        int quantity = prescribedQuantity;
+        AtomicBoolean stockTaken = new AtomicBoolean();
+        boolean dispensed;
+        try {
+            dispensed = SharedCsvFile.of(recordFilePath).update(lines -> {
+                for (int i = 0; i < lines.size(); i++) {
+                    String[] fields = lines.get(i).split(",");
+                    if (!fields[0].equals(appointmentID)) {
+                        continue;
                     }
-                }
-                medicineList.add(fields);
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Medicine_List.csv: " + e.getMessage());
-            return;
-        }
-
-        if (!stockSufficient) {
-            System.out.println("Medicine " + prescribedMedicine + " not found.");
-            return;
-        }
-
-        // Update the prescription status and medicine inventory
-        try (BufferedWriter recordWriter = new BufferedWriter(new FileWriter(recordFilePath))) {
-            for (String[] fields : records) {
-                if (fields[0].equals(appointmentID)) {
+                    if (!fields[4].equalsIgnoreCase(PrescriptionStatus.PENDING.name())) {
+                        System.out.println("Prescription is already dispensed for this appointment.");
+                        return false;
+                    }
+                    if (!takeStock(inventory, medicine, quantity, appointmentID)) {
+                        return false;
+                    }
+                    stockTaken.set(true);
                     fields[4] = PrescriptionStatus.DISPENSED.name();
+                    lines.set(i, String.join(",", fields));
+                    return true;
                 }
-                recordWriter.write(String.join(",", fields));
-                recordWriter.newLine();
-            }
+                return false;
+            });
         } catch (IOException e) {
-            System.err.println("Error writing to AppointmentRecord.csv: " + e.getMessage());
+            System.err.println("Error updating AppointmentRecord.csv: " + e.getMessage());
+            if (stockTaken.get()) {
+                inventory.returnStock(medicine, quantity, appointmentID);
+            }
+            return false;
         }
 
-        try (BufferedWriter medicineWriter = new BufferedWriter(new FileWriter(medicineFilePath))) {
-            for (String[] fields : medicineList) {
-                medicineWriter.write(String.join(",", fields));
-                medicineWriter.newLine();
-            }
-        } catch (IOException e) {
-            System.err.println("Error writing to Medicine_List.csv: " + e.getMessage());
+        if (!dispensed) {
+            return false;
         }
 
         // Generate the bill after dispensing the medicine
         generateBill(appointmentID, prescribedMedicine, prescribedQuantity);
+        return true;
+    }
+
+    /**
+     * Takes a dispensed quantity from the stock of a medicine.
+     *
+     * @param inventory     The medicine inventory
+     * @param medicine      The name of the medicine
+     * @param quantity      The quantity to dispense
+     * @param appointmentID The appointment the medicine is dispensed for
+     * @return true if the stock was sufficient and has been taken; false otherwise
+     */
+    private static boolean takeStock(MedicineInventory inventory, String medicine, int quantity, String appointmentID) {
+        if (!inventory.hasMedicine(medicine)) {
+            System.out.println("Medicine " + medicine + " not found.");
+            return false;
+        }
+        int currentStock = inventory.dispense(medicine, quantity, appointmentID);
+        if (currentStock < 0) {
+            System.out.println("Insufficient stock for " + medicine + ". Please submit a stock replenishment request.");
+            return false;
+        }
+        System.out.println("Dispensed " + quantity + " units of " + medicine + ". Updated stock: " + currentStock);
+        return true;
     }
 
     /**
      * Displays the current medication inventory with stock levels.
      */
     public void viewMedicationInventory() {
-        String medicineFilePath = "resources/Medicine_List.csv";
-
         System.out.println("\n==== Medication Inventory ====");
         System.out.printf("%-20s %-15s %-20s%n", "Medicine Name", "Initial Stock", "Low Stock Level Alert");
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(medicineFilePath))) {
-            String line = reader.readLine(); // Skip header line
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields.length >= 3) {
-                    String medicineName = fields[0].trim();
-                    String initialStock = fields[1].trim();
-                    String lowStockLevel = fields[2].trim();
-                    System.out.printf("%-20s %-15s %-20s%n", medicineName, initialStock, lowStockLevel);
-                } else {
-                    System.out.println("Skipping malformed line: " + line);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Medicine_List.csv: " + e.getMessage());
+        for (String[] fields : MedicineInventory.getInstance().snapshot()) {
+            System.out.printf("%-20s %-15s %-20s%n", fields[0], fields[1], fields[2]);
         }
     }
 
@@ -255,42 +222,50 @@ public class Pharmacist extends User {
      * @param quantity     The quantity to be requested.
      */
     public void submitReplenishmentRequest(String medicineName, int quantity) {
-        String replenishmentFilePath = "resources/ReplenishmentRequest.csv";
         String status = PrescriptionStatus.PENDING.name();
 
-        // Generate RRID with "RR" followed by 3 random digits
-        String rrid = "RR" + String.format("%03d", new Random().nextInt(1000));
+        // Allocate the RRID from the persisted replenishment request sequence
+        IdAllocator allocator = IdAllocator.open(REPLENISHMENT_ID_SEQUENCE, REPLENISHMENT_ID_BLOCK,
+                Pharmacist::firstFreeReplenishmentNumber);
+        String rrid = REPLENISHMENT_ID_PREFIX + allocator.next();
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(replenishmentFilePath, true))) {
-            writer.write(rrid + "," + medicineName + "," + quantity + "," + status);
-            writer.newLine();
+        try {
+            SharedCsvFile.of(REPLENISHMENT_FILE).append(rrid + "," + medicineName + "," + quantity + "," + status);
             System.out.println("Replenishment request submitted for " + medicineName + " with quantity " + quantity + ". Status: " + status);
         } catch (IOException e) {
             System.err.println("Error writing to ReplenishmentRequest.csv: " + e.getMessage());
         }
     }
 
+    /**
+     * Finds the smallest request number above every existing RRID in ReplenishmentRequest.csv,
+     * so a missing sequence file never causes an existing RRID to be reused.
+     *
+     * @return The first request number that may be allocated
+     */
+    private static long firstFreeReplenishmentNumber() {
+        long first = FIRST_REPLENISHMENT_NUMBER;
+        try (CsvTokenizer reader = CsvTokenizer.open(REPLENISHMENT_FILE)) {
+            while (reader.nextRow()) {
+                first = Math.max(first, IdAllocator.parseNumber(reader.field(0), REPLENISHMENT_ID_PREFIX) + 1);
+            }
+        } catch (FileNotFoundException e) {
+            // No requests submitted yet
+        } catch (IOException e) {
+            System.err.println("Error reading ReplenishmentRequest.csv: " + e.getMessage());
+        }
+        return first;
+    }
+
     /**
      * Generates a bill for a specific appointment based on the prescribed medicine and quantity.
+     * The bill is queued on the billing pipeline and recorded in the background.
      *
      * @param appointmentID      The ID of the appointment for which the bill is generated.
      * @param prescribedMedicine The name of the prescribed medicine.
      * @param prescribedQuantity The quantity of the prescribed medicine.
      */
     public void generateBill(String appointmentID, String prescribedMedicine, int prescribedQuantity) {
-        String billFilePath = "resources/Bill.csv";
-        double unitPrice = MEDICINE_PRICES.getOrDefault(prescribedMedicine.toLowerCase(), 0.0);
-        double billAmount = unitPrice * prescribedQuantity;
-
-        // Set the status as "PENDING" and feedback as "na"
-        String status = BillStatus.PENDING.name();
-        String feedback = "na";
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(billFilePath, true))) {
-            writer.write(appointmentID + "," + billAmount + "," + status + "," + feedback);
-            writer.newLine();
-        } catch (IOException e) {
-            System.err.println("Error writing to Bill.csv: " + e.getMessage());
-        }
+        BillingPipeline.getInstance().submit(appointmentID, prescribedMedicine, prescribedQuantity);
     }
 }
@@ -0,0 +1,146 @@
+package usermain;
+
+import java.io.*;
+import java.nio.charset.Charset;
+
+/**
+ * The SessionConsole class lets many sessions share one process while the menus keep using
+ * {@code System.in} and {@code System.out}. Once installed, the standard streams dispatch to
+ * the session bound to the calling thread, and fall back to the process console for threads
+ * without a session (such as the background flushers).
+ *
+ * <p>A session's input hands out at most one line per read. A {@link java.util.Scanner}
+ * therefore never buffers input beyond the line it is parsing, so the several Scanners a menu
+ * creates over {@code System.in} do not take each other's lines.</p>
+ */
+public final class SessionConsole {
+    private static final ThreadLocal<SessionConsole> CURRENT = new ThreadLocal<>();
+    private static boolean installed;
+
+    private final InputStream in;
+    private final OutputStream out;
+
+    /**
+     * Creates a session console over a connection's streams.
+     *
+     * @param in  The stream the session's input is read from
+     * @param out The stream the session's output is written to
+     */
+    public SessionConsole(InputStream in, OutputStream out) {
+        this.in = new LineInputStream(new BufferedInputStream(in));
+        this.out = out;
+    }
+
+    /**
+     * Replaces the standard streams with dispatching streams. Safe to call more than once.
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        InputStream consoleIn = new LineInputStream(new BufferedInputStream(System.in));
+        PrintStream consoleOut = System.out;
+        PrintStream consoleErr = System.err;
+        Charset charset = consoleOut.charset();
+
+        System.setIn(new InputStream() {
+            private InputStream target() {
+                SessionConsole session = CURRENT.get();
+                return session == null ? consoleIn : session.in;
+            }
+
+            @Override
+            public int read() throws IOException {
+                return target().read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return target().read(buffer, offset, length);
+            }
+        });
+        System.setOut(new PrintStream(new DispatchingOutputStream(consoleOut), true, charset));
+        System.setErr(new PrintStream(new DispatchingOutputStream(consoleErr), true, charset));
+        installed = true;
+    }
+
+    /**
+     * Binds this session to the calling thread until {@link #unbind()} is called.
+     */
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Detaches the calling thread from its session.
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Writes to the calling thread's session, or to the process console when no session is bound.
+     */
+    private static final class DispatchingOutputStream extends OutputStream {
+        private final OutputStream console;
+
+        private DispatchingOutputStream(OutputStream console) {
+            this.console = console;
+        }
+
+        private OutputStream target() {
+            SessionConsole session = CURRENT.get();
+            return session == null ? console : session.out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            OutputStream target = target();
+            target.write(buffer, offset, length);
+            target.flush(); // Prompts are printed without a line ending
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+
+    /**
+     * Returns at most one line, including its line ending, from each read.
+     */
+    private static final class LineInputStream extends FilterInputStream {
+        private LineInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            int count = 0;
+            while (count < length) {
+                int b = in.read();
+                if (b < 0) {
+                    return count == 0 ? -1 : count;
+                }
+                buffer[offset + count++] = (byte) b;
+                if (b == '\n') {
+                    break;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return 0; // Keep readers from reading ahead into the next line
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package usermain;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The SessionServer class runs the Hospital Management System for many terminals in one process.
+ * It accepts connections on a local port and runs each connection's login and role menu on its
+ * own virtual thread. All sessions share the same in-memory repositories and indexes.
+ *
+ * <p>Connect with any line-based client, for example {@code nc localhost 5050}.</p>
+ */
+public final class SessionServer {
+    /**
+     * The port used when none is given on the command line.
+     */
+    public static final int DEFAULT_PORT = 5050;
+
+    private SessionServer() {
+    }
+
+    /**
+     * Accepts sessions on the loopback interface until the process is stopped.
+     *
+     * @param port The port to listen on
+     * @throws IOException if the port cannot be opened
+     */
+    public static void serve(int port) throws IOException {
+        SessionConsole.install();
+        ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Hospital Management System listening on " + serverSocket.getLocalSocketAddress());
+            while (true) {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> runSession(socket));
+            }
+        }
+    }
+
+    /**
+     * Runs one session on the calling thread and closes the connection when the user logs out or disconnects.
+     *
+     * @param socket The connection of the session
+     */
+    private static void runSession(Socket socket) {
+        String client = String.valueOf(socket.getRemoteSocketAddress());
+        System.out.println("Session opened: " + client);
+        String error = null;
+        try (socket) {
+            new SessionConsole(socket.getInputStream(), socket.getOutputStream()).bind();
+            Main.runSession();
+        } catch (NoSuchElementException e) {
+            // The client disconnected while a prompt was waiting for input
+        } catch (IOException | RuntimeException e) {
+            error = e.toString();
+        } finally {
+            SessionConsole.unbind();
+        }
+
+        // Logged after unbinding so the messages reach the server console rather than the closed session
+        if (error != null) {
+            System.err.println("Session " + client + " ended with an error: " + error);
+        }
+        System.out.println("Session closed: " + client);
+    }
+}
@@ -11,9 +11,10 @@ import java.util.Scanner;
 public abstract class AbstractMenu implements Menu {
 
     /**
-     * A shared Scanner instance for user input across all menus.
+     * The Scanner for user input of this menu. Each menu has its own so that sessions
+     * served by the same process never share buffered input.
      */
-    protected static final Scanner sc = new Scanner(System.in);
+    protected final Scanner sc = new Scanner(System.in);
 
     /**
      * Displays the logout option with a specified option number.
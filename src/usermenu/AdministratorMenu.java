@@ -1,13 +1,13 @@
 package usermenu;
 import usermain.Administrator;
+import appointment.AppointmentRepository;
 import enums.MedicineList;
 import enums.UserRole;
+import storage.CsvTokenizer;
 
 import java.io.IOException;
 import java.util.InputMismatchException;
 import java.util.Scanner;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.Set;
@@ -327,11 +327,9 @@ public class AdministratorMenu extends AbstractMenu {
      */
     private boolean isStaffIDExists(String id) {
         // Reads Staff.csv and checks if the given ID already exists
-        try (BufferedReader reader = new BufferedReader(new FileReader("resources/Staff.csv"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(id)) {
+        try (CsvTokenizer reader = CsvTokenizer.open("resources/Staff.csv")) {
+            while (reader.nextRow()) {
+                if (reader.fieldEquals(0, id)) {
                     return true; // ID already exists
                 }
             }
@@ -388,7 +386,7 @@ public class AdministratorMenu extends AbstractMenu {
      * @return true if the ID format is valid; false otherwise
      */
     private boolean isProperAppointmentIDFormat(String appointmentID) {
-        return appointmentID.matches("^AP\\d{3}$");
+        return appointmentID.matches("^AP\\d{3,}$");
     }
 
     /**
@@ -398,18 +396,7 @@ public class AdministratorMenu extends AbstractMenu {
      * @return true if the appointment ID exists; false otherwise
      */
     private boolean isAppointmentIDExists(String appointmentID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader("resources/Appointment.csv"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data[0].equals(appointmentID)) {
-                    return true; // Appointment ID exists
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
-        }
-        return false; // Appointment ID does not exist
+        return AppointmentRepository.getInstance().exists(appointmentID);
     }
 
     /**
@@ -1,18 +1,16 @@
 package usermenu;
 import enums.AppointmentStatus;
-import enums.DoctorAvailabilityStatus;
 import usermain.Doctor;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Scanner;
 import java.util.ArrayList;
 import java.util.List;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.InputMismatchException;
-import appointment.AppointmentService;
+import appointment.Appointment;
+import appointment.AppointmentRepository;
+import appointment.Dates;
 import enums.MedicineList;
+import storage.CsvTokenizer;
 
 /**
  * The DoctorMenu class provides the menu interface for doctors in the hospital management system.
@@ -23,8 +21,7 @@ public class DoctorMenu extends AbstractMenu {
     private Doctor doctor;
     private Scanner sc;
     private static final List<String> VALID_PRESCRIPTIONS = List.of(MedicineList.AMOXICILLIN.name(), MedicineList.IBUPROFEN.name(),MedicineList.PARACETAMOL.name(),MedicineList.NA.name());
-    private static final String APPOINTMENT_FILE = "resources/Appointment.csv";
-    private AppointmentService appointmentService = new AppointmentService();
+    private static final int UPCOMING_PAGE_SIZE = 10;
 
     /**
      * Constructs a new DoctorMenu instance for the given doctor.
@@ -51,9 +48,10 @@ public class DoctorMenu extends AbstractMenu {
             System.out.println("(4) Set Availability for Appointments");
             System.out.println("(5) Accept or Decline Appointment Requests");
             System.out.println("(6) View Upcoming Appointments");
-            System.out.println("(7) Record Appointment Outcome");
+            System.out.println("(7) View This Week's Appointments");
+            System.out.println("(8) Record Appointment Outcome");
 
-            displayLogoutOption(8); // Call the common logout option method
+            displayLogoutOption(9); // Call the common logout option method
 
             try {
                 choice = sc.nextInt();
@@ -90,12 +88,15 @@ public class DoctorMenu extends AbstractMenu {
                         acceptOrDeclineAppointmentRequests();
                         break;
                     case 6:
-                        doctor.viewUpcomingAppointments();
+                        viewUpcomingAppointments();
                         break;
                     case 7:
-                        recordAppointmentOutcome();
+                        doctor.viewWeekAppointments();
                         break;
                     case 8:
+                        recordAppointmentOutcome();
+                        break;
+                    case 9:
                         System.out.println("Logging out...");
                         break;
                     default:
@@ -106,7 +107,21 @@ public class DoctorMenu extends AbstractMenu {
                 sc.nextLine(); // Clear invalid input from the scanner buffer
                 choice = -1;
             }
-        } while (choice != 8);
+        } while (choice != 9);
+    }
+
+    /**
+     * Displays the doctor's upcoming appointments a page at a time, asking before each further page.
+     */
+    private void viewUpcomingAppointments() {
+        int offset = 0;
+        while (doctor.viewUpcomingAppointments(offset, UPCOMING_PAGE_SIZE)) {
+            offset += UPCOMING_PAGE_SIZE;
+            System.out.print("Show more appointments? (1: Yes, 2: No): ");
+            if (!sc.nextLine().trim().equals("1")) {
+                break;
+            }
+        }
     }
 
     /**
@@ -119,21 +134,20 @@ public class DoctorMenu extends AbstractMenu {
         String patientFile = "resources/Patient_List.csv";
         boolean found = false;
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(patientFile))) {
-            String line = reader.readLine(); // Skip header line
+        try (CsvTokenizer reader = CsvTokenizer.open(patientFile)) {
+            reader.nextRow(); // Skip header line
 
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(patientID)) {
+            while (reader.nextRow()) {
+                if (reader.fieldEquals(0, patientID)) {
                     System.out.println("\n==== Patient Medical Record ====");
-                    System.out.println("Patient ID: " + fields[0]);
-                    System.out.println("Name: " + fields[2]);
-                    System.out.println("Gender: " + fields[3]);
-                    System.out.println("Date of Birth: " + fields[4]);
-                    System.out.println("Contact Number: " + fields[5]);
-                    System.out.println("Email: " + fields[6]);
-                    System.out.println("Blood Type: " + fields[7]);
-                    System.out.println("Past Treatments: " + fields[8]);
+                    System.out.println("Patient ID: " + reader.field(0));
+                    System.out.println("Name: " + reader.field(2));
+                    System.out.println("Gender: " + reader.field(3));
+                    System.out.println("Date of Birth: " + reader.field(4));
+                    System.out.println("Contact Number: " + reader.field(5));
+                    System.out.println("Email: " + reader.field(6));
+                    System.out.println("Blood Type: " + reader.field(7));
+                    System.out.println("Past Treatments: " + reader.field(8));
                     found = true;
                     break;
                 }
@@ -278,64 +292,46 @@ public class DoctorMenu extends AbstractMenu {
         String doctorID = doctor.getDoctorID();
         boolean foundPending = false;
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE))) {
-            String line = reader.readLine(); // Skip header line
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-
-                if (fields.length < 6) {
-                    //System.out.println("Skipping malformed line in Appointment.csv: " + line);
-                    continue;
-                }
-
-                String appointmentID = fields[0];
-                String appointmentDoctorID = fields[1];
-                String patientID = fields[2];
-                String date = fields[3];
-                String timeSlot = fields[4];
-                String status = fields[5];
-
-                if (appointmentDoctorID.equals(doctorID) && status.equals(AppointmentStatus.PENDING.name())) {
-                    foundPending = true;
-                    System.out.println("\n==== Pending Appointment ====");
-                    System.out.println("Appointment ID: " + appointmentID);
-                    System.out.println("Patient ID: " + patientID);
-                    System.out.println("Date: " + date);
-                    System.out.println("Time Slot: " + timeSlot);
-
-                    int response;
-                    while (true) {
-                        System.out.print("Do you want to (1) Accept or (2) Decline this appointment? Enter 1 or 2: ");
-                        if (sc.hasNextInt()) {
-                            response = sc.nextInt();
-                            sc.nextLine(); // Clear newline
-
-                            if (response == 1) {
-                                doctor.acceptAppointment(appointmentID);
-                                System.out.println("Appointment accepted.");
-                                break;
-                            } else if (response == 2) {
-                                doctor.declineAppointment(appointmentID);
-                                System.out.println("Appointment declined.");
-                                appointmentService.updateSlotStatus(doctorID, date, timeSlot, DoctorAvailabilityStatus.AVAILABLE.name());
-                                break;
-                            } else {
-                                System.out.println("Invalid option. Please enter 1 to accept or 2 to decline.");
-                            }
-                        } else {
-                            System.out.println("Invalid input. Please enter a number (1 to accept or 2 to decline).");
-                            sc.nextLine(); // Clear invalid input
-                        }
+        for (Appointment appointment : AppointmentRepository.getInstance().findByDoctorAndStatus(doctorID, AppointmentStatus.PENDING)) {
+            String appointmentID = appointment.getAppointmentID();
+            String patientID = appointment.getPatientID();
+            String date = appointment.getDate();
+            String timeSlot = appointment.getTimeSlot();
+
+            foundPending = true;
+            System.out.println("\n==== Pending Appointment ====");
+            System.out.println("Appointment ID: " + appointmentID);
+            System.out.println("Patient ID: " + patientID);
+            System.out.println("Date: " + date);
+            System.out.println("Time Slot: " + timeSlot);
+
+            int response;
+            while (true) {
+                System.out.print("Do you want to (1) Accept or (2) Decline this appointment? Enter 1 or 2: ");
+                if (sc.hasNextInt()) {
+                    response = sc.nextInt();
+                    sc.nextLine(); // Clear newline
+
+                    if (response == 1) {
+                        System.out.println(doctor.acceptAppointment(appointment) ? "Appointment accepted."
+                                : "The appointment was changed or cancelled in the meantime and was not accepted.");
+                        break;
+                    } else if (response == 2) {
+                        System.out.println(doctor.declineAppointment(appointment) ? "Appointment declined."
+                                : "The appointment was changed or cancelled in the meantime and was not declined.");
+                        break;
+                    } else {
+                        System.out.println("Invalid option. Please enter 1 to accept or 2 to decline.");
                     }
+                } else {
+                    System.out.println("Invalid input. Please enter a number (1 to accept or 2 to decline).");
+                    sc.nextLine(); // Clear invalid input
                 }
             }
+        }
 
-            if (!foundPending) {
-                System.out.println("No pending appointments found.");
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
+        if (!foundPending) {
+            System.out.println("No pending appointments found.");
         }
     }
 
@@ -409,7 +405,7 @@ public class DoctorMenu extends AbstractMenu {
             System.out.print("Enter date of appointment (e.g., DD-MM-YY): ");
             date = sc.nextLine();
             if (isValidDateFormat(date)) {
-                if (date.equals(correctDate)) {
+                if (Dates.toEpochDay(date) == Dates.toEpochDay(correctDate)) {
                     break;
                 } else {
                     System.out.println("The entered date does not match the scheduled appointment date. Please enter the correct date.");
@@ -434,11 +430,9 @@ public class DoctorMenu extends AbstractMenu {
      * @return true if the outcome is recorded; false otherwise
      */
     private boolean isAppointmentOutcomeRecorded(String appointmentID) {
-        try (BufferedReader br = new BufferedReader(new FileReader("resources/AppointmentRecord.csv"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length > 0 && values[0].equals(appointmentID)) {
+        try (CsvTokenizer reader = CsvTokenizer.open("resources/AppointmentRecord.csv")) {
+            while (reader.nextRow()) {
+                if (reader.fieldEquals(0, appointmentID)) {
                     return true; // Appointment outcome already recorded
                 }
             }
@@ -465,18 +459,7 @@ public class DoctorMenu extends AbstractMenu {
      * @return true if the appointment ID is valid; false otherwise
      */
     private boolean isValidAppointmentID(String appointmentID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(appointmentID)) {
-                    return true;
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
-        }
-        return false;
+        return AppointmentRepository.getInstance().exists(appointmentID);
     }
 
     /**
@@ -486,18 +469,8 @@ public class DoctorMenu extends AbstractMenu {
      * @return The date of the appointment, or null if not found
      */
     private String getCorrectAppointmentDate(String appointmentID) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENT_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-                if (fields[0].equals(appointmentID)) {
-                    return fields[3];
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
-        }
-        return null;
+        Appointment appointment = AppointmentRepository.getInstance().findById(appointmentID);
+        return appointment == null ? null : appointment.getDate();
     }
 
     /**
@@ -507,13 +480,6 @@ public class DoctorMenu extends AbstractMenu {
      * @return true if the date format is valid; false otherwise
      */
     private boolean isValidDateFormat(String date) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yy");
-        dateFormat.setLenient(false);
-        try {
-            dateFormat.parse(date);
-            return true;
-        } catch (ParseException e) {
-            return false;
-        }
+        return Dates.isValid(date);
     }
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package usermenu;
 import usermain.Billing;
 import usermain.Patient;
+import java.util.List;
 import java.util.Scanner;
 import java.util.InputMismatchException;
 import java.io.*;
+import appointment.Appointment;
+import appointment.AppointmentRepository;
 import appointment.AppointmentService;
+import appointment.BookingResult;
+import appointment.DoctorAvailabilityIndex;
 import enums.AppointmentStatus;
+import enums.BookingOutcome;
+import storage.CsvTokenizer;
 
 /**
  * The PatientMenu class provides the menu interface for patients in the hospital management system.
@@ -13,6 +20,7 @@ import enums.AppointmentStatus;
  * view bills, and interact with other patient-related functionalities.
  */
 public class PatientMenu extends AbstractMenu {
+    private static final int EARLIEST_SLOTS_SHOWN = 10;
     private Patient patient;
     private Scanner sc;
     private AppointmentService appointmentService;
@@ -162,11 +170,14 @@ public class PatientMenu extends AbstractMenu {
         String date;
         int flag = 0;
 
-        // Step 1: Validate Doctor ID
+        // Step 1: Validate Doctor ID, or search all doctors when it is left blank
         while (true) {
-            System.out.print("Enter Doctor ID: ");
-            doctorID = scanner.nextLine();
-            if (appointmentService.isValidDoctorID(doctorID)) {
+            System.out.print("Enter Doctor ID (leave blank for the earliest slots of any doctor): ");
+            doctorID = scanner.nextLine().trim();
+            if (doctorID.isEmpty()) {
+                viewEarliestAvailableSlots(scanner);
+                return;
+            } else if (appointmentService.isValidDoctorID(doctorID)) {
                 break;
             } else {
                 System.out.println("Invalid Doctor ID. Please enter a valid Doctor ID.");
@@ -192,13 +203,103 @@ public class PatientMenu extends AbstractMenu {
         }
     }
 
+    /**
+     * Displays the earliest available slots across all doctors from a date entered by the patient.
+     *
+     * @param scanner The scanner reading the patient's input
+     */
+    private void viewEarliestAvailableSlots(Scanner scanner) {
+        String date;
+        while (true) {
+            System.out.print("Enter the earliest date (e.g., DD-MM-YY): ");
+            date = scanner.nextLine();
+            if (appointmentService.isValidDateFormat(date)) {
+                break;
+            }
+            System.out.println("Invalid date format. Please use DD-MM-YY.");
+        }
+        patient.viewEarliestAvailableSlots(date, EARLIEST_SLOTS_SHOWN);
+    }
+
     /**
      * Allows the patient to schedule a new appointment.
-     * The appointment is associated with the patient's ID.
+     * The doctor, date and time slot are validated. The chosen slot is held while the patient confirms it,
+     * and released if the patient declines or leaves the wizard before booking it.
      */
     private void scheduleAppointment() {
         String patientID = patient.getPatientID();
-        patient.scheduleAppointment(patientID);
+        String doctorID;
+        String date;
+
+        // Step 1: Validate Doctor ID with slot availability check
+        while (true) {
+            System.out.print("Enter Doctor ID: ");
+            doctorID = sc.nextLine();
+            if (appointmentService.isValidDoctorID(doctorID) && appointmentService.hasAvailableSlots(doctorID)) {
+                break;
+            } else {
+                System.out.println("The selected doctor has no available slots. Please choose another doctor.");
+            }
+        }
+
+        // Step 2: Validate Date and Check Slot Availability on the Date
+        while (true) {
+            System.out.print("Enter the date (e.g., DD-MM-YY): ");
+            date = sc.nextLine();
+            if (appointmentService.isValidDateFormat(date) && appointmentService.isDoctorAvailableOnDate(doctorID, date)) {
+                break;
+            } else if (!appointmentService.isValidDateFormat(date)) {
+                System.out.println("Invalid date format. Please use DD-MM-YY.");
+            } else {
+                System.out.println("The doctor is not available on this date or has no available slots. Please choose another date.");
+            }
+        }
+
+        // Step 3: Hold the chosen time slot while the patient confirms it
+        while (true) {
+            if (!listTimeSlots(doctorID, date)) {
+                return;
+            }
+            System.out.print("Enter the time slot (e.g., 09:00): ");
+            DoctorAvailabilityIndex.SlotHold hold = appointmentService.holdSlot(patientID, doctorID, date, sc.nextLine());
+            if (hold == null) {
+                System.out.println("Invalid time slot or unavailable. Please check available slots for this doctor.");
+                continue;
+            }
+
+            try {
+                System.out.println("The " + hold.getTimeSlot() + " slot is held for you for "
+                        + (appointmentService.getSlotHoldMillis() + 59_999) / 60_000 + " minute(s).");
+                String answer;
+                while (true) {
+                    System.out.print("Confirm appointment with " + doctorID + " on " + date + " at " + hold.getTimeSlot() + "? (Y/N): ");
+                    answer = sc.nextLine().trim().toUpperCase();
+                    if (answer.equals("Y") || answer.equals("N")) {
+                        break;
+                    } else {
+                        System.out.println("Invalid input. Please enter 'Y' for Yes or 'N' for No.");
+                    }
+                }
+                if (answer.equals("N")) {
+                    System.out.println("The appointment was not scheduled and the time slot was released.");
+                    return;
+                }
+
+                BookingResult result = appointmentService.confirmHold(hold);
+                if (result.isSuccessful()) {
+                    System.out.println("Appointment scheduled successfully. The appointment ID is " + result.getAppointmentID());
+                    return;
+                }
+                if (result.getOutcome() == BookingOutcome.NOT_SAVED) {
+                    System.out.println("The appointment could not be saved. Please try again later.");
+                    return;
+                }
+                System.out.println("Your hold on this time slot expired before it was confirmed.");
+            } finally {
+                // Does nothing once the slot is booked or the hold has expired
+                appointmentService.releaseHold(hold);
+            }
+        }
     }
 
     /**
@@ -219,7 +320,84 @@ public class PatientMenu extends AbstractMenu {
                 System.out.println("Invalid Appointment ID or the appointment is already completed. Please enter a valid Appointment ID.");
             }
         }
-        patient.rescheduleAppointment(appointmentID);
+        String doctorID = AppointmentRepository.getInstance().findById(appointmentID).getDoctorID();
+
+        // Step 1: Validate New Date and Check Availability
+        String newDate;
+        while (true) {
+            System.out.print("Enter the new date (e.g., DD-MM-YY): ");
+            newDate = sc.nextLine();
+            if (appointmentService.isValidDateFormat(newDate) && appointmentService.isDoctorAvailableOnDate(doctorID, newDate)) {
+                break;
+            } else if (!appointmentService.isValidDateFormat(newDate)) {
+                System.out.println("Invalid date format. Please use DD-MM-YY.");
+            } else {
+                System.out.println("The doctor is not available on this date. Please choose another date.");
+            }
+        }
+
+        // Step 2: Validate New Time Slot and move the appointment to it
+        while (true) {
+            System.out.print("Enter the new time slot (e.g., 09:00): ");
+            BookingResult result = appointmentService.rescheduleAppointment(appointmentID, newDate, sc.nextLine());
+            switch (result.getOutcome()) {
+                case RESCHEDULED:
+                    System.out.println("Appointment rescheduled successfully.");
+                    return;
+                case SLOT_TAKEN:
+                    System.out.println("That time slot was just booked by someone else.");
+                    offerAlternatives(doctorID, newDate);
+                    break;
+                case INVALID_TIME_SLOT:
+                case SLOT_UNAVAILABLE:
+                    System.out.println("Invalid time slot or unavailable. Please check available slots for this doctor.");
+                    break;
+                case APPOINTMENT_NOT_FOUND:
+                    System.out.println("Appointment ID not found.");
+                    return;
+                default:
+                    System.out.println("The appointment was changed by someone else. Please try again.");
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Lists the doctor's available time slots on a date before the patient picks one.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param date     The date of the slots
+     * @return true if at least one slot is available
+     */
+    private boolean listTimeSlots(String doctorID, String date) {
+        List<String[]> slots = DoctorAvailabilityIndex.getInstance().findAvailableSlots(doctorID, date);
+        if (slots.isEmpty()) {
+            System.out.println("No slots are left on this date.");
+            return false;
+        }
+        System.out.println("Available time slots on " + date + ":");
+        for (String[] slot : slots) {
+            System.out.println("  " + slot[3]);
+        }
+        return true;
+    }
+
+    /**
+     * Lists the doctor's remaining slots on a date after the chosen slot could not be booked.
+     *
+     * @param doctorID The unique ID of the doctor
+     * @param date     The date of the slot
+     */
+    private void offerAlternatives(String doctorID, String date) {
+        List<String[]> alternatives = DoctorAvailabilityIndex.getInstance().findAvailableSlots(doctorID, date);
+        if (alternatives.isEmpty()) {
+            System.out.println("No other slots are left on this date.");
+            return;
+        }
+        System.out.println("Still available on " + date + ":");
+        for (String[] slot : alternatives) {
+            System.out.println("  " + slot[3]);
+        }
     }
 
     /**
@@ -252,24 +430,10 @@ public class PatientMenu extends AbstractMenu {
      * @return true if the appointment exists and can be canceled; false otherwise
      */
     public boolean isValidAppointmentForCancellation(String appointmentID) {
-        String appointmentFile = "resources/Appointment.csv";
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(appointmentFile))) {
-            String line = reader.readLine(); // Skip header line
+        Appointment appointment = AppointmentRepository.getInstance().findById(appointmentID);
 
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-
-                // Check if the appointment ID matches and status is not "completed"
-                if (fields[0].equals(appointmentID) && !fields[5].equalsIgnoreCase(AppointmentStatus.COMPLETED.name())) {
-                    return true; // Valid appointment ID for cancellation
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
-        }
-
-        return false; // Appointment ID is invalid or status is "completed"
+        // Check if the appointment exists and status is not "completed"
+        return appointment != null && !appointment.hasStatus(AppointmentStatus.COMPLETED);
     }
 
     /**
@@ -278,49 +442,30 @@ public class PatientMenu extends AbstractMenu {
      */
     private void viewScheduledAppointments() {
         String patientID = patient.getPatientID();
-        String appointmentFile = "resources/Appointment.csv";
         String userFile = "resources/User.csv";
         boolean foundConfirmed = false;
 
-        try (BufferedReader appointmentReader = new BufferedReader(new FileReader(appointmentFile))) {
-            String line = appointmentReader.readLine(); // Skip header line
+        for (Appointment appointment : AppointmentRepository.getInstance().findByPatientAndStatus(patientID, AppointmentStatus.CONFIRMED)) {
+            String appointmentID = appointment.getAppointmentID();
+            String appointmentDoctorID = appointment.getDoctorID();
+            String date = appointment.getDate();
+            String timeSlot = appointment.getTimeSlot();
+            AppointmentStatus status = appointment.getStatus();
 
-            while ((line = appointmentReader.readLine()) != null) {
-                String[] fields = line.split(",");
+            String doctorName = getDoctorName(appointmentDoctorID, userFile);
 
-                // Check if the line has the expected number of fields
-                if (fields.length < 6) {
-                    //System.out.println("Skipping malformed line in Appointment.csv: " + line);
-                    continue;
-                }
+            System.out.println("\n==== Upcoming Appointment ====");
+            System.out.println("Appointment ID: " + appointmentID);
+            System.out.println("Doctor Name: " + doctorName);
+            System.out.println("Date: " + date);
+            System.out.println("Time Slot: " + timeSlot);
+            System.out.println("Status: " + status);
 
-                String appointmentID = fields[0];
-                String appointmentDoctorID = fields[1];
-                String appointmentPatientID = fields[2];
-                String date = fields[3];
-                String timeSlot = fields[4];
-                String status = fields[5];
-
-                // Check if the appointment is for the current patient and is confirmed
-                if (appointmentPatientID.equals(patientID) && status.equals(AppointmentStatus.CONFIRMED.name())) {
-                    String doctorName = getDoctorName(appointmentDoctorID, userFile);
-
-                    System.out.println("\n==== Upcoming Appointment ====");
-                    System.out.println("Appointment ID: " + appointmentID);
-                    System.out.println("Doctor Name: " + doctorName);
-                    System.out.println("Date: " + date);
-                    System.out.println("Time Slot: " + timeSlot);
-                    System.out.println("Status: " + status);
-
-                    foundConfirmed = true;
-                }
-            }
+            foundConfirmed = true;
+        }
 
-            if (!foundConfirmed) {
-                System.out.println("No confirmed upcoming appointments found.");
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
+        if (!foundConfirmed) {
+            System.out.println("No confirmed upcoming appointments found.");
         }
     }
 
@@ -332,24 +477,18 @@ public class PatientMenu extends AbstractMenu {
      * @return The name of the doctor if found; "Unknown Doctor" otherwise
      */
     private String getDoctorName(String doctorID, String userFilePath) {
-        try (BufferedReader userReader = new BufferedReader(new FileReader(userFilePath))) {
-            String line = userReader.readLine(); // Skip header line
-
-            while ((line = userReader.readLine()) != null) {
-                String[] userFields = line.split(",");
+        try (CsvTokenizer userReader = CsvTokenizer.open(userFilePath)) {
+            userReader.nextRow(); // Skip header line
 
+            while (userReader.nextRow()) {
                 // Check if the line has the expected number of fields
-                if (userFields.length < 4) {
+                if (userReader.fieldCount() < 4) {
                     continue; // Skip malformed lines
                 }
 
-                String userID = userFields[0];
-                String role = userFields[2];
-                String name = userFields[3];
-
                 // Match the doctor ID and role to find the doctor's name
-                if (userID.equals(doctorID) && role.equalsIgnoreCase("Doctor")) {
-                    return name;
+                if (userReader.fieldEquals(0, doctorID) && userReader.fieldEqualsIgnoreCase(2, "Doctor")) {
+                    return userReader.field(3);
                 }
             }
         } catch (IOException e) {
@@ -1,14 +1,16 @@
 package usermenu;
 import usermain.Pharmacist;
+import appointment.Appointment;
+import appointment.AppointmentRepository;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.InputMismatchException;
 import java.util.List;
 
+import enums.AppointmentStatus;
 import enums.MedicineList;
 import enums.PrescriptionStatus;
+import storage.CsvTokenizer;
 
 /**
  * The PharmacistMenu class provides the menu interface for pharmacists in the hospital management system.
@@ -129,24 +131,10 @@ public class PharmacistMenu extends AbstractMenu {
      * @return true if the appointment exists and is completed; false otherwise
      */
     public boolean isValidAppointmentForViewing(String appointmentID) {
-        String appointmentFile = "resources/Appointment.csv";
+        Appointment appointment = AppointmentRepository.getInstance().findById(appointmentID);
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(appointmentFile))) {
-            String line = reader.readLine(); // Skip header line
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
-
-                // Check if the appointment ID matches and status is "completed"
-                if (fields[0].equals(appointmentID) && fields[5].equalsIgnoreCase("completed")) {
-                    return true; // Valid appointment ID for viewing
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading Appointment.csv: " + e.getMessage());
-        }
-
-        return false; // Appointment ID is invalid or status is not "completed"
+        // Check if the appointment exists and status is "completed"
+        return appointment != null && appointment.hasStatus(AppointmentStatus.COMPLETED);
     }
 
     /**
@@ -158,14 +146,12 @@ public class PharmacistMenu extends AbstractMenu {
     public boolean isValidAppointmentForUpdating(String appointmentID) {
         String appointmentFile = "resources/AppointmentRecord.csv";
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(appointmentFile))) {
-            String line = reader.readLine(); // Skip header line
-
-            while ((line = reader.readLine()) != null) {
-                String[] fields = line.split(",");
+        try (CsvTokenizer reader = CsvTokenizer.open(appointmentFile)) {
+            reader.nextRow(); // Skip header line
 
+            while (reader.nextRow()) {
                 // Check if the appointment ID matches and status is "pending"
-                if (fields[0].equals(appointmentID) && fields[4].equalsIgnoreCase(PrescriptionStatus.PENDING.name())) {
+                if (reader.fieldEquals(0, appointmentID) && reader.fieldEqualsIgnoreCase(4, PrescriptionStatus.PENDING.name())) {
                     return true; // Valid appointment ID for updating
                 }
             }